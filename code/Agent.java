@@ -1,8 +1,16 @@
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Random;
-import java.util.Scanner;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.random.RandomGenerator.SplittableGenerator;
+import java.util.stream.IntStream;
 
 public final class Agent {
     private static final char MINIMUM_RANDOM_CHARACTER_VALUE = 'a';
@@ -11,98 +19,230 @@ public final class Agent {
     private static final int MINIMUM_RANDOM_STRING_LENGTH = 1;
     private static final int MAXIMUM_RANDOM_STRING_LENGTH = 10;
 
-    private static final String TERMINAL_PATTERN = "[" + MINIMUM_RANDOM_CHARACTER_VALUE + "-"
+    public static final String TERMINAL_PATTERN = "[" + MINIMUM_RANDOM_CHARACTER_VALUE + "-"
             + MAXIMUM_RANDOM_CHARACTER_VALUE + "]+";
 
-    private final Random random;
-    private final List<Rule> grammar;
+    // Position of each meaning of the meaning space in a row-major grid
+    private static final Map<Meaning, Integer> MEANING_SPACE;
 
-    public Agent(String in, long seed) {
-        random = new Random(seed);
+    private SplittableGenerator random;
+    private final Grammar grammar;
+
+    // Shortest signal for each meaning derived so far, or an empty string if the
+    // meaning has no derivation; entries are dropped when a rule they depend on
+    // changes
+    private final Map<Meaning, String> derivations;
+
+    // Shortest signal of each meaning in the meaning space that has a derivation
+    // cached (null otherwise), and the number of those meanings with each signal;
+    // the count for the empty string is the number of unfilled meanings
+    private final String[] signalGrid;
+    private final Map<String, Integer> signalCounts;
+    private final Set<Meaning> uncounted;
+
+    // Rules added since the grammar was last interpolated; no pair of rules
+    // outside this set can be chunked or written in terms of one another
+    private final Set<Rule> pending;
 
-        grammar = new ArrayList<Rule>();
-        Scanner stringScan = new Scanner(in);
+    static {
+        MEANING_SPACE = new LinkedHashMap<Meaning, Integer>();
 
-        while (stringScan.hasNext()) {
-            String line = stringScan.nextLine();
-            grammar.add(new Rule(line));
+        for (int i = 0; i < ConstantManager.getNumValues(); i++) {
+            for (int j = 0; j < ConstantManager.getNumValues(); j++) {
+                MEANING_SPACE.put(Meaning.getInstanceFromCoordinates(i, j), MEANING_SPACE.size());
+            }
         }
+    }
+
+    public Agent(String in, long seed) {
+        this(new Grammar(in), RandomStreams.create(seed));
+    }
 
-        stringScan.close();
+    public Agent(Grammar template, long seed) {
+        this(template, RandomStreams.create(seed));
+    }
+
+    /**
+     * Constructs an agent that starts out with a copy of the given grammar, which
+     * is left unchanged
+     * 
+     * @param template the grammar to start with
+     * @param rng      this agent's random number generator
+     */
+    public Agent(Grammar template, SplittableGenerator rng) {
+        random = rng;
+
+        grammar = new Grammar(template);
+        derivations = new HashMap<Meaning, String>();
+        signalGrid = new String[MEANING_SPACE.size()];
+        signalCounts = new HashMap<String, Integer>();
+        uncounted = new LinkedHashSet<Meaning>(MEANING_SPACE.keySet());
+        pending = Collections.newSetFromMap(new IdentityHashMap<Rule, Boolean>());
+
+        for (Rule r : grammar) {
+            pending.add(r);
+        }
     }
 
     public Agent(long seed) {
-        random = new Random(seed);
-        grammar = new ArrayList<Rule>();
+        this(RandomStreams.create(seed));
+    }
+
+    public Agent(SplittableGenerator rng) {
+        random = rng;
+        grammar = new Grammar();
+        derivations = new HashMap<Meaning, String>();
+        signalGrid = new String[MEANING_SPACE.size()];
+        signalCounts = new HashMap<String, Integer>();
+        uncounted = new LinkedHashSet<Meaning>(MEANING_SPACE.keySet());
+        pending = Collections.newSetFromMap(new IdentityHashMap<Rule, Boolean>());
     }
 
     public String getSignal(Meaning m, boolean update) {
-        String sig = trySignal(m.toString());
+        String sig = derive(m);
+
+        if (update && sig.length() == 0) {
+            invent(m);
+            sig = derive(m);
+        }
+
+        return sig;
+    }
+
+    /**
+     * Derives, in parallel, the shortest signal of every meaning in the meaning
+     * space that has no derivation cached. Until the grammar next changes,
+     * getSignal then only has to look these meanings up.
+     */
+    public void deriveMeaningSpaceInParallel() {
+        grammar.index();
+
+        Meaning[] meanings = uncounted.toArray(new Meaning[0]);
+        String[] sigs = new String[meanings.length];
+
+        // peek only reads this agent's state, so it is safe to call concurrently
+        IntStream.range(0, meanings.length).parallel().forEach(i -> sigs[i] = peek(meanings[i]));
+
+        for (int i = 0; i < meanings.length; i++) {
+            record(meanings[i], sigs[i]);
+        }
+    }
+
+    private String derive(Meaning m) {
+        String sig = derivations.get(m);
+
+        if (sig == null) {
+            sig = trySignal(m, this::deriveComponent);
 
-        if (update) {
             if (sig == null) {
-                invent(m);
-                sig = trySignal(m.toString());
+                sig = "";
             }
+
+            record(m, sig);
         }
 
+        return sig;
+    }
+
+    // Like derive, but without caching anything
+    private String peek(Meaning m) {
+        String sig = derivations.get(m);
+
         if (sig == null) {
-            return "";
+            sig = trySignal(m, this::peekComponent);
         }
 
-        return sig;
+        return sig == null ? "" : sig;
     }
 
-    private String trySignal(String input) {
-        if (input.matches(TERMINAL_PATTERN)) {
-            return input;
+    private void record(Meaning m, String sig) {
+        derivations.put(m, sig);
+
+        if (uncounted.remove(m)) {
+            signalGrid[MEANING_SPACE.get(m)] = sig;
+            signalCounts.merge(sig, 1, Integer::sum);
         }
+    }
 
-        String cur = input;
+    private String trySignal(Meaning m, Function<MeaningComponent, String> derivation) {
         String ret = null;
 
-        for (int i = 0; i < grammar.size(); i++) {
-            String next = grammar.get(i).apply(cur);
-
-            if (!next.equals("") && !cur.equals(next)) {
-                String sig = trySignal(next);
+        for (Rule r : grammar.getCandidates(m)) {
+            String sig = r.apply(m, derivation);
 
-                if (sig != null &&
-                        sig.matches(TERMINAL_PATTERN) &&
-                        (ret == null || sig.length() < ret.length())) {
-                    ret = sig;
-                }
+            if (sig != null && (ret == null || sig.length() < ret.length())) {
+                ret = sig;
             }
         }
 
         return ret;
     }
 
+    private String deriveComponent(MeaningComponent mc) {
+        String sig = derive(Meaning.getInstance(mc));
+
+        return sig.length() == 0 ? null : sig;
+    }
+
+    private String peekComponent(MeaningComponent mc) {
+        String sig = peek(Meaning.getInstance(mc));
+
+        return sig.length() == 0 ? null : sig;
+    }
+
     public void induce(Meaning m, String lambda) {
         if (containsSignal(lambda)) {
             return;
         }
 
-        grammar.add(new Rule(m, lambda));
+        addRule(new Rule(m, lambda));
         interpolate();
     }
 
     private void interpolate() {
-        boolean repeat = true;
+        while (!pending.isEmpty()) {
+            if (!interpolatePending()) {
+                pending.clear();
+            }
+        }
+    }
 
-        outer: while (repeat) {
-            repeat = false;
+    private boolean interpolatePending() {
+        int checked = 0;
 
-            for (int i = 0; i < grammar.size(); i++) {
-                for (int j = i + 1; j < grammar.size(); j++) {
-                    if (apply(grammar.get(i), grammar.get(j))) {
-                        repeat = true;
-                        removeDuplicates();
-                        continue outer;
+        for (int[] pair : pendingPairs()) {
+            // Every pair before this one has been checked, so any pending rule that
+            // comes earlier in the grammar has been checked against all the others
+            for (; checked < pair[0]; checked++) {
+                pending.remove(grammar.get(checked));
+            }
+
+            if (apply(grammar.get(pair[0]), grammar.get(pair[1]))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    // Returns the pairs of positions of rules that involve a pending rule and
+    // share a meaning component, in the order a full pairwise scan would reach
+    // them
+    private List<int[]> pendingPairs() {
+        List<int[]> ret = new ArrayList<int[]>();
+
+        for (int i = 0; i < grammar.size(); i++) {
+            if (pending.contains(grammar.get(i))) {
+                for (int j : grammar.getPositionsSharingComponents(grammar.get(i).getMeaning())) {
+                    if (j > i || j < i && !pending.contains(grammar.get(j))) {
+                        ret.add(new int[] { Math.min(i, j), Math.max(i, j) });
                     }
                 }
             }
         }
+
+        ret.sort((p1, p2) -> p1[0] != p2[0] ? p1[0] - p2[0] : p1[1] - p2[1]);
+        return ret;
     }
 
     private void invent(Meaning m) {
@@ -124,23 +264,22 @@ public final class Agent {
             int da = differenceAt(m, grammar.get(shortestIndex).getMeaning());
             MeaningComponent mc = MeaningComponent.getInstanceFromCoordinates(da, -1);
 
-            Rule temp = new Rule(new Meaning(mc), randomString());
-            grammar.add(temp);
+            Rule temp = new Rule(Meaning.getInstance(mc), randomString());
+            addRule(temp);
 
             String ret = getSignal(m.replace(m.getComponents()[da], mc), false);
-            grammar.remove(temp);
+            removeRule(temp);
 
             induce(m, ret);
         }
     }
 
     public String[][] getAllSignals() {
+        deriveMeaningSpace();
         String[][] ret = new String[ConstantManager.getNumValues()][ConstantManager.getNumValues()];
 
         for (int i = 0; i < ret.length; i++) {
-            for (int j = 0; j < ret[i].length; j++) {
-                ret[i][j] = getSignal(new Meaning(i, j), false);
-            }
+            System.arraycopy(signalGrid, i * ret[i].length, ret[i], 0, ret[i].length);
         }
 
         return ret;
@@ -151,7 +290,6 @@ public final class Agent {
     }
 
     public IrregularityHeatMap getIrregularityHeatMap() {
-        removeDuplicates();
         IrregularityHeatMap ihm = new IrregularityHeatMap();
 
         for (int i = 0; i < grammar.size(); i++) {
@@ -164,40 +302,36 @@ public final class Agent {
     }
 
     public String toRawString() {
-        removeDuplicates();
-        Collections.sort(grammar);
-
-        StringBuilder sb = new StringBuilder();
-
-        for (int i = 0; i < grammar.size(); i++) {
-            Rule r = grammar.get(i);
-
-            for (int j = 0; j < r.getMeaning().getComponents().length; j++) {
-                sb.append(r.getMeaning().getComponents()[j].getComponentString() + " ");
-            }
+        sortGrammar();
+        return grammar.toRawString();
+    }
 
-            sb.append(r.getString() + "\n");
-        }
+    /**
+     * Returns a copy of this agent's grammar with its rules in their current
+     * order, which, unlike toRawString, leaves this agent unchanged
+     */
+    public Grammar getGrammar() {
+        return new Grammar(grammar);
+    }
 
-        return sb.toString();
+    /**
+     * Replaces this agent's random number generator, so that what this agent
+     * does from now on depends only on the given generator and its grammar
+     *
+     * @param rng the new generator
+     */
+    public void reseed(SplittableGenerator rng) {
+        random = rng;
     }
 
     public boolean isFilled() {
-        for (String[] ary : getAllSignals()) {
-            for (String s : ary) {
-                if (s.length() == 0) {
-                    return false;
-                }
-            }
-        }
-
-        return true;
+        deriveMeaningSpace();
+        return !signalCounts.containsKey("");
     }
 
     @Override
     public String toString() {
-        removeDuplicates();
-        Collections.sort(grammar);
+        sortGrammar();
 
         StringBuilder sb = new StringBuilder();
 
@@ -244,11 +378,11 @@ public final class Agent {
     private void singleChunk(Rule r1, Rule r2, int da, int[] diffBounds, boolean b1) {
         Rule delete = b1 ? r2 : r1;
 
-        Meaning mu = new Meaning(delete.getMeaning().getComponents()[da]);
+        Meaning mu = Meaning.getInstance(delete.getMeaning().getComponents()[da]);
         String lambda = substring(delete.getString(), diffBounds);
 
-        grammar.add(new Rule(mu, lambda));
-        grammar.remove(delete);
+        addRule(new Rule(mu, lambda));
+        removeRule(delete);
     }
 
     private void doubleChunk(Rule r1, Rule r2, int da, int[] diffBounds) {
@@ -264,12 +398,12 @@ public final class Agent {
         lNew += var.toString();
         lNew += r1.getString().substring(r1.getString().length() - diffBounds[1]);
 
-        grammar.add(new Rule(new Meaning(m1), l1));
-        grammar.add(new Rule(new Meaning(m2), l2));
-        grammar.add(new Rule(r1.getMeaning().replace(m1, var), lNew));
+        addRule(new Rule(Meaning.getInstance(m1), l1));
+        addRule(new Rule(Meaning.getInstance(m2), l2));
+        addRule(new Rule(r1.getMeaning().replace(m1, var), lNew));
 
-        grammar.remove(r1);
-        grammar.remove(r2);
+        removeRule(r1);
+        removeRule(r2);
     }
 
     private void writeInTerms(Rule outside, Rule inside) {
@@ -278,35 +412,48 @@ public final class Agent {
         Meaning meaning = outside.getMeaning().replace(inside.getMeaning().getComponents()[0], var);
         String string = outside.getString().replaceFirst(inside.getString(), var.toString());
 
-        grammar.add(new Rule(meaning, string));
-        grammar.remove(outside);
+        addRule(new Rule(meaning, string));
+        removeRule(outside);
     }
 
-    private void removeDuplicates() {
-        boolean[] remove = new boolean[grammar.size()];
+    private void addRule(Rule r) {
+        if (grammar.add(r)) {
+            pending.add(r);
+            invalidate(r.getMeaning());
+        }
+    }
 
-        for (int i = 0; i < grammar.size(); i++) {
-            Rule r1 = grammar.get(i);
+    private void removeRule(Rule r) {
+        if (grammar.remove(r)) {
+            invalidate(r.getMeaning());
+        }
+    }
 
-            for (int j = i + 1; j < grammar.size(); j++) {
-                Rule r2 = grammar.get(j);
+    // Derivations prefer the earliest of several equally short signals, so
+    // reordering the grammar invalidates all of them
+    private void sortGrammar() {
+        grammar.sort();
+        invalidate(null);
+    }
 
-                if (r1.getMeaning().equals(r2.getMeaning())) {
-                    if (r1.getString().length() < r2.getString().length()) {
-                        remove[j] = true;
-                    } else {
-                        remove[i] = true;
-                    }
-                }
-            }
-        }
+    // Drops the derivations that a rule with the given meaning could take part
+    // in, or every derivation if the meaning is null
+    private void invalidate(Meaning changed) {
+        Iterator<Map.Entry<Meaning, String>> it = derivations.entrySet().iterator();
 
-        int index = 0;
+        while (it.hasNext()) {
+            Map.Entry<Meaning, String> entry = it.next();
 
-        for (int i = 0; i < remove.length; i++, index++) {
-            if (remove[i]) {
-                grammar.remove(index);
-                index--;
+            if (changed == null || dependsOn(entry.getKey(), changed)) {
+                it.remove();
+
+                Integer position = MEANING_SPACE.get(entry.getKey());
+
+                if (position != null) {
+                    signalGrid[position] = null;
+                    signalCounts.merge(entry.getValue(), -1, (a, b) -> a + b == 0 ? null : a + b);
+                    uncounted.add(entry.getKey());
+                }
             }
         }
     }
@@ -328,11 +475,27 @@ public final class Agent {
     }
 
     private boolean containsSignal(String in) {
-        for (int i = 0; i < ConstantManager.getNumValues(); i++) {
-            for (int j = 0; j < ConstantManager.getNumValues(); j++) {
-                String signal = getSignal(new Meaning(i, j), false);
+        deriveMeaningSpace();
+        return signalCounts.containsKey(in);
+    }
+
+    // Derives the meanings of the meaning space whose derivations were dropped
+    private void deriveMeaningSpace() {
+        for (Meaning m : new ArrayList<Meaning>(uncounted)) {
+            derive(m);
+        }
+    }
+
+    // Returns true if the derivation of m could use a rule with meaning mu: either
+    // directly or, for a multi-component meaning, to fill one of its slots
+    private static boolean dependsOn(Meaning m, Meaning mu) {
+        if (m.isGeneralizableTo(mu)) {
+            return true;
+        }
 
-                if (in.equals(signal)) {
+        if (m.getComponents().length > 1 && mu.getComponents().length == 1) {
+            for (MeaningComponent mc : m.getComponents()) {
+                if (Meaning.getInstance(mc).isGeneralizableTo(mu)) {
                     return true;
                 }
             }
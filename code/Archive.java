@@ -0,0 +1,434 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Many small files kept in one segment file, so that a sweep doesn't create a
+ * directory per section and a file per run. Every write is appended to the
+ * segment as a record naming the section and name it belongs to, and an index
+ * of where each file's records lie is kept in memory and saved beside the
+ * segment when synced. A file that is written again is simply appended again,
+ * and a record cut short by a crash is dropped when the archive is reopened.
+ * The records a file's later writes supersede take up space until the archive
+ * is next opened, when the segment is rewritten without them if they take up
+ * more of it than the files themselves.
+ *
+ * Files in an archive are reached through entries, which stand in for the
+ * files they name wherever a file is read or written through BasicIO.
+ */
+public final class Archive {
+    private static final String SEGMENT_EXTENSION = ".seg";
+    private static final String INDEX_EXTENSION = ".idx";
+
+    private static final int MAGIC = 0x41524331;
+
+    private static final byte WRITE = 0;
+    private static final byte APPEND = 1;
+    private static final byte DELETE = 2;
+
+    // The least space superseded records must take up before they are removed
+    private static final long COMPACTION_THRESHOLD = 1 << 20;
+
+    private final File root;
+    private final File segment;
+    private final File indexFile;
+    private FileChannel channel;
+
+    // The offset and length of each record that makes up each file, by the
+    // file's section and name
+    private final Map<String, List<long[]>> index;
+
+    /**
+     * Opens the archive with the given name in the given directory, creating it
+     * if it doesn't exist. The sections of the files in it are their
+     * directories relative to that directory.
+     */
+    public Archive(File dir, String name) {
+        root = dir;
+        segment = new File(dir, name + SEGMENT_EXTENSION);
+        indexFile = new File(dir, name + INDEX_EXTENSION);
+        index = new HashMap<String, List<long[]>>();
+
+        dir.mkdirs();
+
+        try {
+            channel = open();
+            recover(loadIndex());
+            compact();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("bad archive: " + segment);
+        }
+    }
+
+    /**
+     * Returns the entry for the file with the given name in the given
+     * directory, which must lie within this archive's directory
+     */
+    public Entry getEntry(File dir, String name) {
+        return new Entry(getSection(dir), name);
+    }
+
+    /**
+     * Returns the names of the files and sections directly within the given
+     * directory, or null if there are none
+     */
+    public synchronized String[] list(File dir) {
+        String section = getSection(dir);
+        String prefix = section.isEmpty() ? "" : section + "/";
+        Set<String> ret = new TreeSet<String>();
+
+        for (String key : index.keySet()) {
+            // Files directly in this archive's directory have an empty section
+            String path = key.startsWith("/") ? key.substring(1) : key;
+
+            if (path.startsWith(prefix)) {
+                String rest = path.substring(prefix.length());
+                ret.add(rest.contains("/") ? rest.substring(0, rest.indexOf('/')) : rest);
+            }
+        }
+
+        return ret.isEmpty() ? null : ret.toArray(new String[ret.size()]);
+    }
+
+    /**
+     * Empties this archive
+     */
+    public synchronized void clear() {
+        try {
+            channel.truncate(0);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("bad archive: " + segment);
+        }
+
+        index.clear();
+        indexFile.delete();
+    }
+
+    /**
+     * Forces the segment to the disk and saves the index beside it
+     */
+    public synchronized void sync() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        force();
+
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeLong(channel.size());
+            out.writeInt(index.size());
+
+            for (Map.Entry<String, List<long[]>> e : index.entrySet()) {
+                out.writeUTF(e.getKey());
+                out.writeInt(e.getValue().size());
+
+                for (long[] extent : e.getValue()) {
+                    out.writeLong(extent[0]);
+                    out.writeLong(extent[1]);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("bad archive: " + segment);
+        }
+
+        BasicIO.writeAtomically(indexFile, bytes.toByteArray());
+    }
+
+    private String getSection(File dir) {
+        Path base = root.toPath().toAbsolutePath().normalize();
+        return base.relativize(dir.toPath().toAbsolutePath().normalize()).toString().replace(File.separatorChar, '/');
+    }
+
+    private FileChannel open() throws IOException {
+        return FileChannel.open(segment.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+    }
+
+    private void force() {
+        try {
+            channel.force(true);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("bad archive: " + segment);
+        }
+    }
+
+    private synchronized boolean contains(String key) {
+        return index.containsKey(key);
+    }
+
+    private synchronized long getLength(String key) {
+        long ret = 0;
+
+        for (long[] extent : index.getOrDefault(key, new ArrayList<long[]>())) {
+            ret += extent[1];
+        }
+
+        return ret;
+    }
+
+    private synchronized byte[] read(String key) throws IOException {
+        List<long[]> extents = index.get(key);
+
+        if (extents == null) {
+            throw new IOException("no file " + key + " in " + segment);
+        }
+
+        ByteBuffer buf = ByteBuffer.allocate((int) getLength(key));
+
+        for (long[] extent : extents) {
+            long pos = extent[0];
+
+            for (int end = buf.position() + (int) extent[1]; buf.position() < end;) {
+                buf.limit(end);
+                pos += channel.read(buf, pos);
+            }
+        }
+
+        return buf.array();
+    }
+
+    // Appends a record, and only once it is wholly written adds it to the index
+    private synchronized void put(String key, byte type, byte[] data) throws IOException {
+        long start = channel.size();
+        apply(key, type, write(channel, start, toRecord(key, type, data)) - data.length, data.length);
+    }
+
+    // Rewrites the segment with only the current contents of each file, if the
+    // records that have been superseded take up more of it than they do. The
+    // saved index is deleted first, since it doesn't match the new segment.
+    private void compact() throws IOException {
+        long live = 0;
+
+        for (String key : index.keySet()) {
+            live += getLength(key);
+        }
+
+        long waste = channel.size() - live;
+
+        if (waste <= live || waste < COMPACTION_THRESHOLD) {
+            return;
+        }
+
+        Path temp = Files.createTempFile(root.toPath(), ".", ".tmp");
+        Map<String, List<long[]>> compacted = new HashMap<String, List<long[]>>();
+
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            long pos = 0;
+
+            for (String key : new TreeSet<String>(index.keySet())) {
+                byte[] data = read(key);
+                pos = write(out, pos, toRecord(key, WRITE, data));
+
+                List<long[]> extents = new ArrayList<long[]>();
+                extents.add(new long[] { pos - data.length, data.length });
+                compacted.put(key, extents);
+            }
+
+            out.force(true);
+        }
+
+        indexFile.delete();
+        channel.close();
+        Files.move(temp, segment.toPath(), StandardCopyOption.ATOMIC_MOVE);
+
+        channel = open();
+        index.clear();
+        index.putAll(compacted);
+        sync();
+    }
+
+    private static byte[] toRecord(String key, byte type, byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(type);
+            out.writeUTF(key);
+            out.writeInt(data.length);
+            out.write(data);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    // Writes the record at the given position, returning the position after it
+    private static long write(FileChannel fc, long start, byte[] record) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(record);
+
+        while (buf.hasRemaining()) {
+            fc.write(buf, start + buf.position());
+        }
+
+        return start + record.length;
+    }
+
+    private void apply(String key, byte type, long offset, long length) {
+        if (type == DELETE) {
+            index.remove(key);
+        } else if (type == APPEND && index.containsKey(key)) {
+            index.get(key).add(new long[] { offset, length });
+        } else {
+            List<long[]> extents = new ArrayList<long[]>();
+            extents.add(new long[] { offset, length });
+            index.put(key, extents);
+        }
+    }
+
+    // Returns the length of the segment the saved index covers, or 0 if there is
+    // no saved index or it doesn't match the segment
+    private long loadIndex() throws IOException {
+        if (!indexFile.exists()) {
+            return 0;
+        }
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(BasicIO.readBytes(indexFile)))) {
+            if (in.readInt() != MAGIC) {
+                return 0;
+            }
+
+            long covered = in.readLong();
+
+            if (covered > channel.size()) {
+                return 0;
+            }
+
+            int numKeys = in.readInt();
+
+            for (int i = 0; i < numKeys; i++) {
+                String key = in.readUTF();
+                List<long[]> extents = new ArrayList<long[]>();
+
+                for (int j = in.readInt(); j > 0; j--) {
+                    extents.add(new long[] { in.readLong(), in.readLong() });
+                }
+
+                index.put(key, extents);
+            }
+
+            return covered;
+        } catch (IOException e) {
+            index.clear();
+            return 0;
+        }
+    }
+
+    // Reads the records after the given offset into the index, and cuts off any
+    // record left incomplete by a crash so that later records follow on from the
+    // last complete one
+    private void recover(long from) throws IOException {
+        long pos = from;
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(segment.toPath())))) {
+            in.skipNBytes(from);
+
+            while (pos < channel.size()) {
+                byte type = in.readByte();
+                byte[] key = new byte[in.readUnsignedShort()];
+                in.readFully(key);
+                int length = in.readInt();
+                long offset = pos + 1 + 2 + key.length + 4;
+
+                if (offset + length > channel.size()) {
+                    break;
+                }
+
+                in.skipNBytes(length);
+                apply(new String(key, StandardCharsets.UTF_8), type, offset, length);
+                pos = offset + length;
+            }
+        } catch (EOFException e) {
+            // The last record's header was cut short
+        }
+
+        channel.truncate(pos);
+    }
+
+    /**
+     * A file in an archive. An entry exists once it has been written, and is
+     * read and written through BasicIO like any other file.
+     */
+    public final class Entry extends File {
+        private static final long serialVersionUID = 1L;
+
+        private final String key;
+
+        private Entry(String section, String name) {
+            super(new File(root, section), name);
+            key = section + "/" + name;
+        }
+
+        @Override
+        public boolean exists() {
+            return contains(key);
+        }
+
+        @Override
+        public boolean isFile() {
+            return contains(key);
+        }
+
+        @Override
+        public long length() {
+            return getLength(key);
+        }
+
+        @Override
+        public boolean delete() {
+            if (!contains(key)) {
+                return false;
+            }
+
+            try {
+                put(key, DELETE, new byte[0]);
+                return true;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        public InputStream newInputStream() throws IOException {
+            return new ByteArrayInputStream(read(key));
+        }
+
+        /**
+         * Returns a stream whose contents replace this entry's, or are added to
+         * the end of them, once it is closed
+         */
+        public OutputStream newOutputStream(boolean append) {
+            return new ByteArrayOutputStream() {
+                private boolean closed = false;
+
+                @Override
+                public void close() throws IOException {
+                    if (!closed) {
+                        closed = true;
+                        put(key, append ? APPEND : WRITE, toByteArray());
+                    }
+                }
+            };
+        }
+
+        public Archive getArchive() {
+            return Archive.this;
+        }
+    }
+}
\ No newline at end of file
@@ -1,41 +1,182 @@
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.PrintWriter;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.Formatter;
-import java.util.Scanner;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 public final class BasicIO {
     private static final int MINIMUM_COLUMN_WIDTH = 2;
     private static final int PADDING = 2;
 
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    public static final String COMPRESSED_SUFFIX = ".gz";
+
     private BasicIO() {
         throw new AssertionError("objects of class BasicIO should not be able to be instantiated");
     }
 
+    /**
+     * Reads the whole file, ending every line with a newline and leaving out
+     * any blank lines at the end
+     */
     public static String read(File file) {
-        String temp = "";
+        StringBuilder sb = new StringBuilder();
+
+        forEachLine(file, line -> sb.append(line).append('\n'));
+
+        int last = sb.length() - 1;
+
+        while (last >= 0 && Character.isWhitespace(sb.charAt(last))) {
+            last--;
+        }
+
+        sb.setLength(last < 0 ? 0 : sb.indexOf("\n", last) + 1);
+        return sb.toString();
+    }
 
-        try (Scanner scan = new Scanner(file)) {
-            while (scan.hasNext()) {
-                temp += scan.nextLine() + "\n";
+    /**
+     * Passes each line of the file, without its line terminator, to the given
+     * action in turn, reading through a fixed-size buffer so that only one line
+     * at a time is held however large the file is. Compressed files are
+     * decompressed as they are read.
+     */
+    public static void forEachLine(File file, Consumer<String> action) {
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(openInput(file), StandardCharsets.UTF_8),
+                BUFFER_SIZE)) {
+            for (String line = br.readLine(); line != null; line = br.readLine()) {
+                action.accept(line);
             }
-        } catch (FileNotFoundException e) {
+        } catch (IOException e) {
             throw new IllegalArgumentException("bad file: " + file);
         }
+    }
 
-        return temp;
+    public static byte[] readBytes(File file) {
+        try (InputStream in = openInput(file)) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("bad file: " + file);
+        }
     }
 
     public static void write(File file, String string) {
-        try (PrintWriter pw = new PrintWriter(file, "UTF-8")) {
-            pw.print(string);
-            pw.close();
+        try (OutputStream out = openOutput(file, false)) {
+            out.write(string.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("bad file: " + file);
+        }
+    }
+
+    // A compressed file is appended to as a new GZIP member, which readers
+    // decompress as if it were part of the one before. A member cut short would
+    // make the whole file unreadable, so the file is copied with the new member
+    // added and the copy moved into place.
+    public static void append(File file, String string) {
+        if (!isCompressed(file) || file instanceof Archive.Entry) {
+            try (OutputStream out = openOutput(file, true)) {
+                out.write(string.getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new IllegalArgumentException("bad file: " + file);
+            }
+
+            return;
+        }
+
+        try {
+            Path temp = Files.createTempFile(file.getAbsoluteFile().getParentFile().toPath(), ".", ".tmp");
+
+            if (file.exists()) {
+                Files.copy(file.toPath(), temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            try (OutputStream out = compress(file, Files.newOutputStream(temp, StandardOpenOption.APPEND))) {
+                out.write(string.getBytes(StandardCharsets.UTF_8));
+            }
+
+            Files.move(temp, file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("bad file: " + file);
+        }
+    }
+
+    /**
+     * Writes the string to a temporary file beside the given one and then moves
+     * it into place, so that the file is never seen half written, even by
+     * another process or after a crash. Every write to an archive is atomic
+     * already.
+     */
+    public static void writeAtomically(File file, String string) {
+        writeAtomically(file, string.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static void writeAtomically(File file, byte[] bytes) {
+        if (file instanceof Archive.Entry) {
+            try (OutputStream out = openOutput(file, false)) {
+                out.write(bytes);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("bad file: " + file);
+            }
+
+            return;
+        }
+
+        try {
+            Path temp = Files.createTempFile(file.getAbsoluteFile().getParentFile().toPath(), ".", ".tmp");
+
+            try (OutputStream out = compress(file, Files.newOutputStream(temp))) {
+                out.write(bytes);
+            }
+
+            Files.move(temp, file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("bad file: " + file);
+        }
+    }
+
+    /**
+     * Forces whatever has been written to the file out to the disk
+     */
+    public static void sync(File file) {
+        if (file instanceof Archive.Entry) {
+            ((Archive.Entry) file).getArchive().sync();
+            return;
+        }
+
+        try (FileChannel fc = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            fc.force(true);
         } catch (IOException e) {
             throw new IllegalArgumentException("bad file: " + file);
         }
     }
 
+    /**
+     * Returns whether the given file is, or is to be, compressed, which is the
+     * case for any file whose name ends in the compressed suffix
+     */
+    public static boolean isCompressed(File file) {
+        return file.getName().endsWith(COMPRESSED_SUFFIX);
+    }
+
+    /**
+     * Returns whether the given file holds its contents as they are, on disk,
+     * so that it can be memory-mapped
+     */
+    public static boolean canMap(File file) {
+        return !isCompressed(file) && !(file instanceof Archive.Entry);
+    }
+
     public static String getFormattedMeaningSpaceGrid(String[][] ary) {
         if (ary.length != ConstantManager.getNumValues()) {
             throw new IllegalArgumentException("bad array dimension: " + ary.length);
@@ -81,6 +222,28 @@ public final class BasicIO {
         return ret;
     }
 
+    private static InputStream openInput(File file) throws IOException {
+        InputStream in = file instanceof Archive.Entry ? ((Archive.Entry) file).newInputStream()
+                : Files.newInputStream(file.toPath());
+        return isCompressed(file) ? new GZIPInputStream(in, BUFFER_SIZE) : in;
+    }
+
+    private static OutputStream openOutput(File file, boolean append) throws IOException {
+        if (file instanceof Archive.Entry) {
+            return compress(file, ((Archive.Entry) file).newOutputStream(append));
+        }
+
+        return compress(file, append
+                ? Files.newOutputStream(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.APPEND)
+                : Files.newOutputStream(file.toPath()));
+    }
+
+    // Wraps the given stream, which writes the given file or a temporary file
+    // that will replace it, in a compressor if the file is compressed
+    private static OutputStream compress(File file, OutputStream out) throws IOException {
+        return isCompressed(file) ? new GZIPOutputStream(out, BUFFER_SIZE) : out;
+    }
+
     private static int[] widths(String[][] ary) {
         int[] ret = new int[ary.length];
 
@@ -3,6 +3,9 @@ public final class ConstantManager {
     private static final String FILE_NAME = "values";
     private static final ConstantEntry[] ENTRIES;
 
+    // Entries after these are optional and are looked up by label
+    private static final int NUM_REQUIRED = 8;
+
     public static final int NUM_CONSTANTS;
 
     static {
@@ -62,7 +65,95 @@ public final class ConstantManager {
         return (int) ENTRIES[7].getValue();
     }
 
+    public static boolean isParallelConversation() {
+        return (int) getOptionalValue("ParallelConversation", 0) != 0;
+    }
+
+    public static int getNumThreads() {
+        int threads = (int) getOptionalValue("NumThreads", 0);
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    public static boolean isWorkStealing() {
+        return (int) getOptionalValue("WorkStealing", 1) != 0;
+    }
+
+    public static boolean isSharded() {
+        return (int) getOptionalValue("Sharded", 0) != 0;
+    }
+
+    public static int getCheckpointInterval() {
+        return (int) getOptionalValue("CheckpointInterval", 0);
+    }
+
+    public static boolean isResuming() {
+        return (int) getOptionalValue("Resume", 0) != 0;
+    }
+
+    public static int getReplicateChains() {
+        return (int) getOptionalValue("ReplicateChains", 1);
+    }
+
+    public static boolean isBinarySeries() {
+        return (int) getOptionalValue("BinarySeries", 0) != 0;
+    }
+
+    public static boolean isCompressed() {
+        return (int) getOptionalValue("Compress", 0) != 0;
+    }
+
+    /**
+     * Returns how many writes may wait to be done by the write-behind stage, or 0
+     * if files are written by the threads that produce them
+     */
+    public static int getWriteBehindCapacity() {
+        return (int) getOptionalValue("WriteBehind", 0);
+    }
+
+    public static boolean isArchived() {
+        return (int) getOptionalValue("Archive", 0) != 0;
+    }
+
+    /**
+     * Returns a 64-bit FNV-1a hash of the labels and values of the parameters
+     * that together determine what a run with a given seed does. These are the
+     * required parameters and the optional ones that change what a run
+     * produces, but not those that only change how runs are scheduled or their
+     * output is stored. ParallelConversation is one of the latter, since both
+     * ways of conversing give the same results.
+     */
+    public static long getConfigHash() {
+        StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < NUM_REQUIRED; i++) {
+            sb.append(ENTRIES[i].getLabel() + " " + ENTRIES[i].getValue() + "\n");
+        }
+
+        // Optional parameters are hashed by their effective values, so leaving
+        // one out is the same as giving its default
+        sb.append("ReplicateChains " + getReplicateChains() + "\n");
+
+        long hash = 0xcbf29ce484222325L;
+
+        for (char c : sb.toString().toCharArray()) {
+            hash ^= c;
+            hash *= 0x100000001b3L;
+        }
+
+        return hash;
+    }
+
     public static ConstantEntry[] getEntries() {
         return ENTRIES;
     }
+
+    private static Object getOptionalValue(String label, Object defaultValue) {
+        for (int i = NUM_REQUIRED; i < ENTRIES.length; i++) {
+            if (ENTRIES[i].getLabel().equals(label)) {
+                return ENTRIES[i].getValue();
+            }
+        }
+
+        return defaultValue;
+    }
 }
\ No newline at end of file
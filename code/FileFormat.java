@@ -3,20 +3,64 @@ import java.io.File;
 public final class FileFormat {
     private final String directory;
     private final String extension;
+    private final boolean compressed;
+    private final Archive archive;
 
     public FileFormat(String dir, String ext) {
+        this(dir, ext, false);
+    }
+
+    /**
+     * Creates a file format whose files are compressed if the given flag is
+     * set, in which case their names end in the compressed suffix and they are
+     * compressed and decompressed by BasicIO as they are written and read
+     */
+    public FileFormat(String dir, String ext, boolean comp) {
+        this(dir, ext, comp, null);
+    }
+
+    /**
+     * Creates a file format whose files are kept in the given archive, if not
+     * null, instead of in a directory of their own
+     */
+    public FileFormat(String dir, String ext, boolean comp, Archive arc) {
         directory = dir;
         extension = ext;
+        compressed = comp;
+        archive = arc;
+
+        if (archive == null) {
+            new File(directory).mkdirs();
+        }
+    }
 
-        new File(directory).mkdirs();
+    public File getDirectory() {
+        return new File(directory);
+    }
+
+    public boolean isCompressed() {
+        return compressed;
     }
 
     public File getFile(String name) {
-        return new File(directory + "/" + name + "." + extension);
+        String fileName = name + "." + extension + (compressed ? BasicIO.COMPRESSED_SUFFIX : "");
+        return archive == null ? new File(directory + "/" + fileName) : archive.getEntry(getDirectory(), fileName);
     }
 
     public FileFormat getFileFormatWithSubFolder(String folderName, String ext) {
-        return new FileFormat(directory + "/" + folderName, ext);
+        return new FileFormat(directory + "/" + folderName, ext, compressed, archive);
+    }
+
+    public FileFormat getFileFormatWithExtension(String ext) {
+        return new FileFormat(directory, ext, compressed, archive);
+    }
+
+    /**
+     * Returns this file format with its files kept in the given archive, or in
+     * their own directories if it is null
+     */
+    public FileFormat getFileFormatWithArchive(Archive arc) {
+        return new FileFormat(directory, extension, compressed, arc);
     }
 
     public FileFormat getFileFormatWithSubFolder(String folderName) {
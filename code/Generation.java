@@ -1,11 +1,29 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.NoSuchElementException;
-import java.util.Random;
+import java.util.random.RandomGenerator.SplittableGenerator;
+import java.util.stream.IntStream;
 
 public abstract class Generation implements Iterable<Meaning>{
-    private static final double[] RANGES;
+    private static final double WEIGHT_SUM;
 
-    private final Random random;
+    // Alias table (Vose's method) over the meaning space in row-major order: a
+    // meaning is sampled by picking a column uniformly, then taking either that
+    // column's meaning (with the column's probability) or its alias
+    private static final Meaning[] MEANINGS;
+    private static final double[] PROBABILITIES;
+    private static final int[] ALIASES;
+
+    private final SplittableGenerator random;
+
+    // Each utterance is eroded with its own stream split off from this one, so
+    // utterances can be eroded in any order with the same result
+    private final SplittableGenerator erosion;
+    private final StringBuilder erosionBuffer;
     
     private final Agent speaker;
     private final Agent listener;
@@ -14,21 +32,72 @@ public abstract class Generation implements Iterable<Meaning>{
 
     static{
         double[][] mags = magnitudes();
+        int n = mags.length * mags[0].length;
+
+        double sum = 0;
+
+        for(int i = 0; i < n; i++){
+            sum += mags[i / mags[0].length][i % mags[0].length];
+        }
+
+        WEIGHT_SUM = sum;
+
+        MEANINGS = new Meaning[n];
+        PROBABILITIES = new double[n];
+        ALIASES = new int[n];
+
+        double[] scaled = new double[n];
+        Deque<Integer> small = new ArrayDeque<Integer>();
+        Deque<Integer> large = new ArrayDeque<Integer>();
+
+        for(int i = 0; i < n; i++){
+            MEANINGS[i] = Meaning.getInstanceFromCoordinates(i / mags[0].length, i % mags[0].length);
+            scaled[i] = mags[i / mags[0].length][i % mags[0].length] * n / sum;
+
+            if(scaled[i] < 1){
+                small.push(i);
+            }
+            else{
+                large.push(i);
+            }
+        }
+
+        while(!small.isEmpty() && !large.isEmpty()){
+            int less = small.pop();
+            int more = large.pop();
+
+            PROBABILITIES[less] = scaled[less];
+            ALIASES[less] = more;
 
-        RANGES = new double[mags.length * mags[0].length];
+            scaled[more] += scaled[less] - 1;
+
+            if(scaled[more] < 1){
+                small.push(more);
+            }
+            else{
+                large.push(more);
+            }
+        }
 
-        RANGES[0] = mags[0][0];
+        // Whatever is left over is only off from 1 by rounding error
+        while(!large.isEmpty()){
+            PROBABILITIES[large.peek()] = 1;
+            ALIASES[large.peek()] = large.pop();
+        }
 
-        for(int i = 1; i < RANGES.length; i++){
-            RANGES[i] = RANGES[i - 1] + mags[i / mags[0].length][i % mags[0].length];
+        while(!small.isEmpty()){
+            PROBABILITIES[small.peek()] = 1;
+            ALIASES[small.peek()] = small.pop();
         }
     }
 
-    public Generation(Agent old, long seed){
-        random = new Random(seed);
+    public Generation(Agent old, SplittableGenerator rng){
+        random = rng;
+        erosion = random.split();
+        erosionBuffer = new StringBuilder();
         
         speaker = old;
-        listener = new Agent(random.nextLong());
+        listener = new Agent(random.split());
         count = 0;
     }
 
@@ -46,15 +115,7 @@ public abstract class Generation implements Iterable<Meaning>{
     }
 
     public final String erode(String in){
-        String ret = "";
-
-        for(int i = 0; i < in.length(); i++){
-            if(random.nextDouble() > ConstantManager.getErosionProbability()){
-                ret += in.charAt(i);
-            }
-        }
-        
-        return ret;
+        return RandomStreams.erode(erosion.split(), in, ConstantManager.getErosionProbability(), erosionBuffer);
     }
 
     @Override
@@ -68,14 +129,16 @@ public abstract class Generation implements Iterable<Meaning>{
 
                 count++;
 
-                double value = random.nextDouble() * RANGES[RANGES.length - 1];
-                int index = 0;
+                // One uniform draw picks both the column (integer part) and
+                // whether to take its alias (fractional part)
+                double value = random.nextDouble() * MEANINGS.length;
+                int index = (int) value;
 
-                while(RANGES[index] < value){
-                    index++;
+                if(value - index >= PROBABILITIES[index]){
+                    index = ALIASES[index];
                 }
 
-                return new Meaning(index / ConstantManager.getNumValues(), index % ConstantManager.getNumValues());
+                return MEANINGS[index];
             }
 
             @Override
@@ -85,14 +148,76 @@ public abstract class Generation implements Iterable<Meaning>{
         };
     }
 
-    public abstract void converse();
+    public final void converse(){
+        if(ConstantManager.isParallelConversation()){
+            converseInPhases();
+            return;
+        }
+
+        for(Meaning m: this){
+            String pass = erode(nextSpeaker().getSignal(m, true));
+
+            if(pass.length() > 0){
+                listener.induce(m, pass);
+            }
+        }
+    }
+
+    // Samples every meaning and speaker up front, produces and erodes all the
+    // utterances (in parallel where possible), and then has the listener learn
+    // from them in order. The result is exactly the same as conversing one
+    // meaning at a time.
+    private void converseInPhases(){
+        List<Meaning> meanings = new ArrayList<Meaning>();
+        List<Agent> speakers = new ArrayList<Agent>();
+
+        for(Meaning m: this){
+            meanings.add(m);
+            speakers.add(nextSpeaker());
+        }
+
+        SplittableGenerator[] streams = new SplittableGenerator[meanings.size()];
+
+        for(int i = 0; i < streams.length; i++){
+            streams[i] = erosion.split();
+        }
+
+        for(Agent a: new LinkedHashSet<Agent>(speakers)){
+            a.deriveMeaningSpaceInParallel();
+        }
+
+        // Inventing changes a speaker's grammar, so signals are looked up in order
+        String[] signals = new String[meanings.size()];
+
+        for(int i = 0; i < signals.length; i++){
+            signals[i] = speakers.get(i).getSignal(meanings.get(i), true);
+        }
+
+        String[] passes = new String[signals.length];
+
+        IntStream.range(0, passes.length).parallel().forEach(i -> passes[i] = RandomStreams.erode(streams[i],
+                signals[i], ConstantManager.getErosionProbability(), new StringBuilder(signals[i].length())));
+
+        for(int i = 0; i < passes.length; i++){
+            if(passes[i].length() > 0){
+                listener.induce(meanings.get(i), passes[i]);
+            }
+        }
+    }
+
+    /**
+     * Returns the agent that speaks the next meaning of this generation
+     * 
+     * @return as described above
+     */
+    protected abstract Agent nextSpeaker();
 
     public static final double getWeight(int i, int j){
         return (double) 1 / (i + 1) / (j + 1);
     }
 
     public static final double getWeightSum(){
-        return RANGES[RANGES.length - 1];
+        return WEIGHT_SUM;
     }
 
     private static double[][] magnitudes(){
@@ -0,0 +1,248 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * An ordered list of rules with at most one rule per meaning. It also indexes
+ * its rules by meaning (and so by category and constant components), letting a
+ * derivation step visit only the rules that can apply to a given meaning
+ */
+public final class Grammar implements Iterable<Rule> {
+    private List<Rule> rules;
+    private Map<Meaning, Rule> byMeaning;
+
+    // Whether the list and map above may be shared with another grammar, in
+    // which case they are copied before being changed
+    private boolean shared;
+
+    // Positions in the list of the rule with each meaning and of the rules with
+    // each component, rebuilt on demand after the list changes
+    private final Map<Meaning, Integer> index;
+    private final Map<MeaningComponent, List<Integer>> componentIndex;
+    private boolean indexed;
+
+    public Grammar() {
+        rules = new ArrayList<Rule>();
+        byMeaning = new HashMap<Meaning, Rule>();
+        index = new HashMap<Meaning, Integer>();
+        componentIndex = new HashMap<MeaningComponent, List<Integer>>();
+        indexed = true;
+    }
+
+    /**
+     * Constructs a grammar from a string representation, as produced by
+     * Agent.toRawString
+     * 
+     * @param in a string with one rule per line
+     */
+    public Grammar(String in) {
+        this();
+
+        Scanner stringScan = new Scanner(in);
+
+        while (stringScan.hasNext()) {
+            add(new Rule(stringScan.nextLine()));
+        }
+
+        stringScan.close();
+    }
+
+    /**
+     * Constructs a copy of the given grammar. The two grammars share their rules
+     * until either one changes, so copying is cheap and the given grammar can be
+     * used as a template for any number of copies.
+     * 
+     * @param g the grammar to copy
+     */
+    public Grammar(Grammar g) {
+        rules = g.rules;
+        byMeaning = g.byMeaning;
+        shared = true;
+        g.shared = true;
+
+        index = new HashMap<Meaning, Integer>();
+        componentIndex = new HashMap<MeaningComponent, List<Integer>>();
+        indexed = false;
+    }
+
+    public int size() {
+        return rules.size();
+    }
+
+    public Rule get(int i) {
+        return rules.get(i);
+    }
+
+    /**
+     * Adds the given rule to the end of this grammar, unless there is already a
+     * rule with the same meaning and a shorter signal. A rule with the same
+     * meaning and a signal at least as long is replaced.
+     *
+     * @param r the rule to add
+     * @return true if and only if the rule was added
+     */
+    public boolean add(Rule r) {
+        Rule existing = byMeaning.get(r.getMeaning());
+
+        if (existing != null) {
+            if (r.getString().length() > existing.getString().length()) {
+                return false;
+            }
+
+            unshare();
+            rules.remove(existing);
+        }
+
+        unshare();
+        rules.add(r);
+        byMeaning.put(r.getMeaning(), r);
+        indexed = false;
+
+        return true;
+    }
+
+    public boolean remove(Rule r) {
+        if (!r.equals(byMeaning.get(r.getMeaning()))) {
+            return false;
+        }
+
+        unshare();
+        rules.remove(r);
+        byMeaning.remove(r.getMeaning());
+        indexed = false;
+
+        return true;
+    }
+
+    public void sort() {
+        unshare();
+        Collections.sort(rules);
+        indexed = false;
+    }
+
+    /**
+     * Builds the index now if this grammar has changed since it was last built.
+     * The index is otherwise built on first use, so this must be called before
+     * reading the grammar from several threads at once.
+     */
+    public void index() {
+        if (!indexed) {
+            buildIndex();
+        }
+    }
+
+    /**
+     * Returns the rules that apply to the given meaning (i.e. those whose meaning
+     * the given meaning is generalizable to), in the order they appear in this
+     * grammar
+     *
+     * @param m the meaning
+     * @return as described above
+     */
+    public List<Rule> getCandidates(Meaning m) {
+        index();
+
+        List<Integer> positions = new ArrayList<Integer>();
+
+        for (Meaning g : m.getGeneralizations()) {
+            Integer i = index.get(g);
+
+            if (i != null) {
+                positions.add(i);
+            }
+        }
+
+        Collections.sort(positions);
+
+        List<Rule> ret = new ArrayList<Rule>(positions.size());
+
+        for (int i : positions) {
+            ret.add(rules.get(i));
+        }
+
+        return ret;
+    }
+
+    /**
+     * Returns the positions, in ascending order, of the rules whose meanings share
+     * at least one component with the given meaning. Only these rules can be
+     * chunked with or written in terms of a rule with the given meaning.
+     *
+     * @param m the meaning
+     * @return as described above
+     */
+    public List<Integer> getPositionsSharingComponents(Meaning m) {
+        index();
+
+        Set<Integer> positions = new TreeSet<Integer>();
+
+        for (MeaningComponent mc : m.getComponents()) {
+            List<Integer> list = componentIndex.get(mc);
+
+            if (list != null) {
+                positions.addAll(list);
+            }
+        }
+
+        return new ArrayList<Integer>(positions);
+    }
+
+    /**
+     * Returns a string representation of this grammar that the string
+     * constructor parses back into an equal grammar
+     *
+     * @return one line per rule, in order
+     */
+    public String toRawString() {
+        StringBuilder sb = new StringBuilder();
+
+        for (Rule r : rules) {
+            for (MeaningComponent mc : r.getMeaning().getComponents()) {
+                sb.append(mc.getComponentString() + " ");
+            }
+
+            sb.append(r.getString() + "\n");
+        }
+
+        return sb.toString();
+    }
+
+    @Override
+    public Iterator<Rule> iterator() {
+        return Collections.unmodifiableList(rules).iterator();
+    }
+
+    private void unshare() {
+        if (shared) {
+            rules = new ArrayList<Rule>(rules);
+            byMeaning = new HashMap<Meaning, Rule>(byMeaning);
+            shared = false;
+        }
+    }
+
+    private void buildIndex() {
+        index.clear();
+        componentIndex.clear();
+
+        for (int i = 0; i < rules.size(); i++) {
+            Meaning m = rules.get(i).getMeaning();
+            index.put(m, i);
+
+            for (MeaningComponent mc : m.getComponents()) {
+                List<Integer> list = componentIndex.computeIfAbsent(mc, k -> new ArrayList<Integer>());
+
+                if (list.isEmpty() || list.get(list.size() - 1) != i) {
+                    list.add(i);
+                }
+            }
+        }
+
+        indexed = true;
+    }
+}
@@ -1,3 +1,5 @@
+import java.util.random.RandomGenerator.SplittableGenerator;
+
 public final class HeterogeneousGeneration extends Generation{
     private final Agent secondLanguageSpeaker;
     private final double nonnativeProbability;
@@ -5,8 +7,8 @@ public final class HeterogeneousGeneration extends Generation{
     private int nativeSpeakerSignals;
     private int secondLanguageSpeakerSignals;
     
-    public HeterogeneousGeneration(Agent l1, Agent l2, long seed, double p){
-        super(l1, seed);
+    public HeterogeneousGeneration(Agent l1, Agent l2, SplittableGenerator rng, double p){
+        super(l1, rng);
         nonnativeProbability = p;
         secondLanguageSpeaker = l2;
         
@@ -15,27 +17,16 @@ public final class HeterogeneousGeneration extends Generation{
     }
 
     @Override
-    public void converse(){
-        for(Meaning m: this){
-            String signal;
-
-            if(nextDouble() < nonnativeProbability  &&
-            secondLanguageSpeakerSignals < maxSecondLanguageSpeakerSignals() ||
-            nativeSpeakerSignals > maxNativeSpeakerSignals()){
-                signal = secondLanguageSpeaker.getSignal(m, true);
-                secondLanguageSpeakerSignals++;
-            }
-            else{
-                signal = getSpeaker().getSignal(m, true);
-                nativeSpeakerSignals++;
-            }
-
-            String pass = erode(signal);
-
-            if(pass.length() > 0){
-                getListener().induce(m, pass);
-            }
+    protected Agent nextSpeaker(){
+        if(nextDouble() < nonnativeProbability  &&
+        secondLanguageSpeakerSignals < maxSecondLanguageSpeakerSignals() ||
+        nativeSpeakerSignals > maxNativeSpeakerSignals()){
+            secondLanguageSpeakerSignals++;
+            return secondLanguageSpeaker;
         }
+
+        nativeSpeakerSignals++;
+        return getSpeaker();
     }
     
     private int maxNativeSpeakerSignals(){
@@ -1,8 +1,14 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+
 public final class HeterogeneousRun extends Run{
     private final double probability;
     private final Agent nativeSpeaker;
-    private final Agent secondLanguageSpeaker;
-    
+    private final List<Integer> series;
+
+    private Agent current;
+    private Agent secondLanguageSpeaker;
     private String status;
 
     public HeterogeneousRun(long s, double prob, Agent l1, Agent l2){
@@ -11,9 +17,10 @@ public final class HeterogeneousRun extends Run{
         probability = prob;
         nativeSpeaker = l1;
         secondLanguageSpeaker = l2;
-        
+        series = new ArrayList<Integer>();
+
         status = "0";
-    }    
+    }
 
     public HeterogeneousRun(double prob, Agent l1, Agent l2){
         super();
@@ -21,44 +28,112 @@ public final class HeterogeneousRun extends Run{
         probability = prob;
         nativeSpeaker = l1;
         secondLanguageSpeaker = l2;
-        
+        series = new ArrayList<Integer>();
+
         status = "0";
     }
 
     @Override
-    protected String generateRunString(){
-        StringBuilder sb = new StringBuilder();
-        
-        Generation init = new HeterogeneousGeneration(nativeSpeaker, secondLanguageSpeaker, nextLong(), probability);
-        init.converse();
+    protected void generateOutput(RunOutput out){
+        Scanner scan = restore();
 
-        Agent cur = init.getListener();
+        if(scan == null){
+            current = step(new HeterogeneousGeneration(nativeSpeaker, secondLanguageSpeaker, split(), probability));
+            series.add(current.getIrregularityHeatMap().getTotalIrregularForms());
 
-        sb.append(SimulationCoordinator.IRREGULARITY_STRING + "\n");
-        sb.append(cur.getIrregularityHeatMap().getTotalIrregularForms() + "\n");
+            endGeneration();
+        } else {
+            load(scan);
+        }
 
-        int i = 1;
+        while(series.size() < ConstantManager.getNumToAnalyze()){
+            current = step(new HeterogeneousGeneration(current, secondLanguageSpeaker, split(), probability));
 
-        while(i < ConstantManager.getNumToAnalyze()){
-            Generation g = new HeterogeneousGeneration(cur, secondLanguageSpeaker, nextLong(), probability);
-            g.converse();
+            if(current.isFilled()){
+                series.add(current.getIrregularityHeatMap().getTotalIrregularForms());
+                status = series.size() + "";
+            }
 
-            cur = g.getListener();
+            endGeneration();
+        }
 
-            if(cur.isFilled()){
-                sb.append(cur.getIrregularityHeatMap().getTotalIrregularForms() + "\n");   
-                i++;
-                status = i + "";
-            }
+        StringBuilder sb = new StringBuilder();
+
+        for(int value : series){
+            sb.append(value + "\n");
         }
 
-        sb.append(SimulationCoordinator.IRREGULARITY_STRING + "\n");
+        out.addSection(SimulationCoordinator.IRREGULARITY_STRING, sb);
+        out.addColumn(SimulationCoordinator.IRREGULARITY_STRING, series.stream().mapToInt(i -> i).toArray());
+    }
 
-        return sb.toString();
+    // Generations that leave the listener unfilled are run again, and the more
+    // the second-language speaker is heard the more often that happens
+    @Override
+    public double getEstimatedCost(){
+        return estimateCost(probability);
     }
-    
+
     @Override
     public String getCurrentStatus(){
         return status;
     }
+
+    public static double estimateCost(double prob){
+        return ConstantManager.getNumToAnalyze() * (1 + prob);
+    }
+
+    private void endGeneration(){
+        checkpoint(this::getState);
+
+        current.reseed(split());
+        secondLanguageSpeaker.reseed(split());
+    }
+
+    // The second-language speaker invents signals as it goes, so its grammar is
+    // saved along with the current agent's
+    private String getState(){
+        StringBuilder sb = new StringBuilder();
+        sb.append(series.size() + "\n");
+
+        for(int value : series){
+            sb.append(value + "\n");
+        }
+
+        sb.append(SimulationCoordinator.GRAMMAR_STRING + "\n");
+        sb.append(current.getGrammar().toRawString());
+        sb.append(SimulationCoordinator.GRAMMAR_STRING + "\n");
+        sb.append(secondLanguageSpeaker.getGrammar().toRawString());
+
+        return sb.toString();
+    }
+
+    private void load(Scanner scan){
+        int numValues = scan.nextInt();
+
+        for(int i = 0; i < numValues; i++){
+            series.add(scan.nextInt());
+        }
+
+        scan.nextLine();
+        scan.nextLine();
+
+        StringBuilder grammar = new StringBuilder();
+
+        for(String line = scan.nextLine(); !line.equals(SimulationCoordinator.GRAMMAR_STRING); line = scan.nextLine()){
+            grammar.append(line + "\n");
+        }
+
+        current = new Agent(new Grammar(grammar.toString()), split());
+        grammar = new StringBuilder();
+
+        while(scan.hasNextLine()){
+            grammar.append(scan.nextLine() + "\n");
+        }
+
+        scan.close();
+
+        secondLanguageSpeaker = new Agent(new Grammar(grammar.toString()), split());
+        status = series.size() + "";
+    }
 }
\ No newline at end of file
@@ -1,17 +1,12 @@
+import java.util.random.RandomGenerator.SplittableGenerator;
+
 public final class HomogeneousGeneration extends Generation{
-    public HomogeneousGeneration(Agent old, long seed){
-        super(old, seed);
+    public HomogeneousGeneration(Agent old, SplittableGenerator rng){
+        super(old, rng);
     }
         
     @Override
-    public void converse(){
-        for(Meaning m: this){
-            String signal = getSpeaker().getSignal(m, true);
-            String pass = erode(signal);
-            
-            if(pass.length() > 0){
-                getListener().induce(m, pass);
-            }
-        }
+    protected Agent nextSpeaker(){
+        return getSpeaker();
     }
 }
\ No newline at end of file
@@ -1,46 +1,93 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.random.RandomGenerator.SplittableGenerator;
+import java.util.stream.IntStream;
 
 public final class HomogeneousRun extends Run {
+    private static final String EMPTY_SIGNAL = "-";
+
+    private final LinkedBlockingDeque<String[][]> signals;
+    private final List<Integer> series;
+    private final IrregularityHeatMap irregularity;
+
+    private Agent agent;
+    private boolean intelligible;
     private String status;
 
     public HomogeneousRun(long s) {
         super(s);
+
+        signals = new LinkedBlockingDeque<String[][]>(ConstantManager.getIntelligibilityDelay() + 1);
+        series = new ArrayList<Integer>();
+        irregularity = new IrregularityHeatMap();
         status = "benchmarking";
     }
 
     public HomogeneousRun() {
         super();
+
+        signals = new LinkedBlockingDeque<String[][]>(ConstantManager.getIntelligibilityDelay() + 1);
+        series = new ArrayList<Integer>();
+        irregularity = new IrregularityHeatMap();
         status = "benchmarking";
     }
 
     @Override
-    protected String generateRunString() {
-        StringBuilder sb = new StringBuilder();
-        Agent a = appendUntilIntelligible();
+    protected void generateOutput(RunOutput out) {
+        Scanner scan = restore();
 
-        status = "intelligible";
-        sb.append(SimulationCoordinator.IRREGULARITY_STRING + "\n");
+        if (scan == null) {
+            agent = new Agent(split());
+        } else {
+            load(scan);
+        }
 
-        IrregularityHeatMap irregularity = new IrregularityHeatMap();
+        if (!intelligible) {
+            appendUntilIntelligible();
+        }
 
-        for (int i = 0; i < ConstantManager.getNumToAnalyze(); i++) {
-            Generation g = new HomogeneousGeneration(a, nextLong());
-            g.converse();
+        status = "intelligible";
+
+        if (ConstantManager.getReplicateChains() > 1 && series.isEmpty()) {
+            analyzeInChains(ConstantManager.getReplicateChains());
+        }
 
-            a = g.getListener();
+        while (series.size() < ConstantManager.getNumToAnalyze()) {
+            agent = step(new HomogeneousGeneration(agent, split()));
 
-            if (!a.isFilled()) {
-                i--;
-            } else {
-                IrregularityHeatMap cur = a.getIrregularityHeatMap();
+            if (agent.isFilled()) {
+                IrregularityHeatMap cur = agent.getIrregularityHeatMap();
 
-                sb.append(cur.getTotalIrregularForms() + "\n");
+                series.add(cur.getTotalIrregularForms());
                 irregularity.add(cur);
             }
+
+            endGeneration();
         }
 
-        appendEnd(sb, a, irregularity);
-        return sb.toString();
+        StringBuilder sb = new StringBuilder();
+
+        for (int value : series) {
+            sb.append(value + "\n");
+        }
+
+        out.addSection(SimulationCoordinator.IRREGULARITY_STRING, sb);
+        out.addColumn(SimulationCoordinator.IRREGULARITY_STRING, series.stream().mapToInt(i -> i).toArray());
+        out.addSection(SimulationCoordinator.HEATMAP_STRING, irregularity.toString());
+        out.addSection(SimulationCoordinator.GRAMMAR_STRING, agent.toRawString());
+
+        status = "done";
+    }
+
+    // Every run spends at least the intelligibility delay reaching a stable
+    // language before analyzing it. How much longer it takes depends on its
+    // seed, so this is the same for every run, and runs are told apart by the
+    // generation counts recorded for them instead.
+    @Override
+    public double getEstimatedCost() {
+        return estimateCost();
     }
 
     @Override
@@ -48,45 +95,155 @@ public final class HomogeneousRun extends Run {
         return status;
     }
 
-    private Agent appendUntilIntelligible() {
-        Agent a = new Agent(nextLong());
-        LinkedBlockingDeque<String[][]> signals = new LinkedBlockingDeque<String[][]>(
-                ConstantManager.getIntelligibilityDelay() + 1);
+    public static double estimateCost() {
+        return ConstantManager.getIntelligibilityDelay() + 1 + ConstantManager.getNumToAnalyze();
+    }
 
+    private void appendUntilIntelligible() {
         while (signals.remainingCapacity() > 0) {
-            Generation g = new HomogeneousGeneration(a, nextLong());
-            g.converse();
+            agent = step(new HomogeneousGeneration(agent, split()));
+            signals.add(agent.getAllSignals());
 
-            a = g.getListener();
-            signals.add(a.getAllSignals());
+            endGeneration();
         }
 
         status = "benchmarked";
 
         while (intelligibility(signals.getFirst(), signals.getLast()) < ConstantManager.getIntelligibilityThreshold()) {
-            Generation g = new HomogeneousGeneration(a, nextLong());
-            g.converse();
-
-            a = g.getListener();
+            agent = step(new HomogeneousGeneration(agent, split()));
             signals.removeFirst();
-            signals.add(a.getAllSignals());
+            signals.add(agent.getAllSignals());
+
+            endGeneration();
+        }
+
+        intelligible = true;
+    }
+
+    // Continues from the intelligible agent along the given number of
+    // independent chains at once, each with its own stream split off before any
+    // of them starts, and merges their series and heat maps in chain order. The
+    // first chain's agent carries on as this run's agent. Chains aren't
+    // checkpointed, so a resumed run restarts them from its last checkpoint.
+    private void analyzeInChains(int numChains) {
+        Grammar start = agent.getGrammar();
+        SplittableGenerator[] streams = new SplittableGenerator[numChains];
+
+        for (int i = 0; i < streams.length; i++) {
+            streams[i] = split();
+        }
+
+        Chain[] chains = IntStream.range(0, numChains).parallel().mapToObj(i -> runChain(start, streams[i]))
+                .toArray(Chain[]::new);
+
+        for (Chain c : chains) {
+            series.addAll(c.series);
+            irregularity.add(c.irregularity);
+        }
+
+        agent = chains[0].agent;
+    }
+
+    private Chain runChain(Grammar start, SplittableGenerator rng) {
+        Chain c = new Chain(new Agent(start, rng.split()));
+
+        while (c.series.size() < ConstantManager.getNumToAnalyze()) {
+            c.agent = step(new HomogeneousGeneration(c.agent, rng.split()));
+
+            if (c.agent.isFilled()) {
+                IrregularityHeatMap cur = c.agent.getIrregularityHeatMap();
+
+                c.series.add(cur.getTotalIrregularForms());
+                c.irregularity.add(cur);
+            }
+
+            c.agent.reseed(rng.split());
         }
 
-        return a;
+        return c;
+    }
+
+    private void endGeneration() {
+        checkpoint(this::getState);
+        agent.reseed(split());
     }
 
-    private void appendEnd(StringBuilder sb, Agent a, IrregularityHeatMap ihm) {
-        sb.append(SimulationCoordinator.IRREGULARITY_STRING + "\n");
+    private String getState() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(intelligible + " " + signals.size() + "\n");
+
+        for (String[][] ary : signals) {
+            for (String[] row : ary) {
+                for (String sig : row) {
+                    sb.append((sig.length() == 0 ? EMPTY_SIGNAL : sig) + " ");
+                }
+
+                sb.append("\n");
+            }
+        }
+
+        sb.append(series.size() + "\n");
+
+        for (int value : series) {
+            sb.append(value + "\n");
+        }
 
         sb.append(SimulationCoordinator.HEATMAP_STRING + "\n");
-        sb.append(ihm);
+        sb.append(irregularity);
         sb.append(SimulationCoordinator.HEATMAP_STRING + "\n");
+        sb.append(agent.getGrammar().toRawString());
 
-        sb.append(SimulationCoordinator.GRAMMAR_STRING + "\n");
-        sb.append(a.toRawString());
-        sb.append(SimulationCoordinator.GRAMMAR_STRING + "\n");
+        return sb.toString();
+    }
 
-        status = "done";
+    private void load(Scanner scan) {
+        intelligible = scan.nextBoolean();
+        int numSignals = scan.nextInt();
+
+        for (int k = 0; k < numSignals; k++) {
+            String[][] ary = new String[ConstantManager.getNumValues()][ConstantManager.getNumValues()];
+
+            for (int i = 0; i < ary.length; i++) {
+                for (int j = 0; j < ary[i].length; j++) {
+                    String sig = scan.next();
+                    ary[i][j] = sig.equals(EMPTY_SIGNAL) ? "" : sig;
+                }
+            }
+
+            signals.add(ary);
+        }
+
+        int numValues = scan.nextInt();
+
+        for (int i = 0; i < numValues; i++) {
+            series.add(scan.nextInt());
+        }
+
+        scan.nextLine();
+        scan.nextLine();
+
+        StringBuilder heatMap = new StringBuilder();
+
+        for (String line = scan.nextLine(); !line.equals(SimulationCoordinator.HEATMAP_STRING); line = scan
+                .nextLine()) {
+            heatMap.append(line + "\n");
+        }
+
+        irregularity.add(new IrregularityHeatMap(heatMap.toString()));
+
+        StringBuilder grammar = new StringBuilder();
+
+        while (scan.hasNextLine()) {
+            grammar.append(scan.nextLine() + "\n");
+        }
+
+        scan.close();
+
+        agent = new Agent(new Grammar(grammar.toString()), split());
+
+        if (signals.remainingCapacity() == 0) {
+            status = "benchmarked";
+        }
     }
 
     private static double intelligibility(String[][] ary1, String[][] ary2) {
@@ -106,4 +263,17 @@ public final class HomogeneousRun extends Run {
 
         return total / Generation.getWeightSum();
     }
+
+    private static final class Chain {
+        private final List<Integer> series;
+        private final IrregularityHeatMap irregularity;
+
+        private Agent agent;
+
+        private Chain(Agent a) {
+            series = new ArrayList<Integer>();
+            irregularity = new IrregularityHeatMap();
+            agent = a;
+        }
+    }
 }
\ No newline at end of file
@@ -20,7 +20,7 @@ public final class IrregularityHeatMap {
                 return;
             }
 
-            Meaning key = new Meaning(next);
+            Meaning key = Meaning.getInstanceFromString(next);
             int value = scan.nextInt();
 
             irregularity.put(key, value);
@@ -87,7 +87,7 @@ public final class IrregularityHeatMap {
 
         for (int i = 0; i < ConstantManager.getNumValues(); i++) {
             for (int j = 0; j < ConstantManager.getNumValues(); j++) {
-                Integer val = irregularity.get(new Meaning(i, j));
+                Integer val = irregularity.get(Meaning.getInstanceFromCoordinates(i, j));
 
                 if (val == null) {
                     ary[i][j] = "0";
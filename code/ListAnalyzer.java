@@ -1,11 +1,10 @@
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.io.File;
+import java.util.Arrays;
 import java.util.Scanner;
+import java.util.stream.DoubleStream;
 
 public final class ListAnalyzer {
-    private final String source;
-    private final List<Double> values;
+    private final double[] values;
 
     private final double mean;
     private final double standardDeviation;
@@ -15,10 +14,24 @@ public final class ListAnalyzer {
     private final double maximum;
 
     public ListAnalyzer(String s) {
-        source = s;
-        values = new ArrayList<Double>();
+        this(parse(new Scanner(s)));
+    }
+
+    /**
+     * Constructs an analyzer of the values in the given file, one per line,
+     * streaming them rather than reading the file into one string
+     */
+    public ListAnalyzer(File f) {
+        this(parse(f));
+    }
+
+    /**
+     * Constructs an analyzer of the given values, as read from a series file
+     */
+    public ListAnalyzer(double[] v) {
+        values = v.clone();
+        Arrays.sort(values);
 
-        load();
         mean = loadMean();
         standardDeviation = loadStandardDeviation();
         confidenceIntervalDifference = loadConfidenceIntervalDifference();
@@ -27,63 +40,84 @@ public final class ListAnalyzer {
         maximum = loadMaximum();
     }
 
-    private void load() {
-        Scanner scan = new Scanner(source);
+    private static double[] parse(Scanner scan) {
+        DoubleStream.Builder ret = DoubleStream.builder();
 
         while (scan.hasNextDouble()) {
-            values.add(scan.nextDouble());
+            ret.add(scan.nextDouble());
         }
 
         scan.close();
+        return ret.build().toArray();
+    }
+
+    // Like parse(Scanner), stops at the first value that isn't a number
+    private static double[] parse(File f) {
+        DoubleStream.Builder ret = DoubleStream.builder();
+        boolean[] done = new boolean[1];
+
+        BasicIO.forEachLine(f, line -> {
+            for (String token : line.trim().split("\\s+")) {
+                if (done[0] || token.isEmpty()) {
+                    continue;
+                }
+
+                try {
+                    ret.add(Double.parseDouble(token));
+                } catch (NumberFormatException e) {
+                    done[0] = true;
+                }
+            }
+        });
 
-        Collections.sort(values);
+        return ret.build().toArray();
     }
 
     private double loadMean() {
         double total = 0;
 
-        for (int i = 0; i < values.size(); i++) {
-            total += values.get(i);
+        for (int i = 0; i < values.length; i++) {
+            total += values[i];
         }
 
-        return total / values.size();
+        return total / values.length;
     }
 
     private double loadStandardDeviation() {
-        if (values.size() == 1) {
+        if (values.length == 1) {
             return 0;
         }
 
         double total = 0;
 
-        for (int i = 0; i < values.size(); i++) {
-            total += (values.get(i) - mean) * (values.get(i) - mean);
+        for (int i = 0; i < values.length; i++) {
+            total += (values[i] - mean) * (values[i] - mean);
         }
 
-        return Math.sqrt(total / (values.size() - 1));
+        return Math.sqrt(total / (values.length - 1));
     }
 
     private double loadMedian() {
-        if (values.size() % 2 == 0) {
-            double d1 = values.get(values.size() / 2 - 1);
-            double d2 = values.get(values.size() / 2);
+        if (values.length % 2 == 0) {
+            double d1 = values[values.length / 2 - 1];
+            double d2 = values[values.length / 2];
 
             return (d1 + d2) / 2;
         }
 
-        return values.get(values.size() / 2);
+        return values[values.length / 2];
     }
 
     private double loadConfidenceIntervalDifference() {
-        return 1.96 * standardDeviation / Math.sqrt(values.size());
+        return 1.96 * standardDeviation / Math.sqrt(values.length);
     }
 
     private double loadMinimum() {
-        double ret = values.get(0);
+        double ret = values[0];
 
-        for (int i = 1; i < values.size(); i++) {
-            if (values.get(i) < ret) {
-                ret = values.get(i);
+        for (int i = 1; i < values.length; i++) {
+            if (values[i] < ret) {
+                ret = values[i];
             }
         }
 
@@ -91,11 +125,11 @@ public final class ListAnalyzer {
     }
 
     private double loadMaximum() {
-        double ret = values.get(0);
+        double ret = values[0];
 
-        for (int i = 1; i < values.size(); i++) {
-            if (values.get(i) > ret) {
-                ret = values.get(i);
+        for (int i = 1; i < values.length; i++) {
+            if (values[i] > ret) {
+                ret = values[i];
             }
         }
 
@@ -1,7 +1,11 @@
 public class Main {
     public static void main(String[] args) {
         try {
-            new ExecutionFacade().consume();
+            if (args.length > 0 && args[0].equals("worker")) {
+                new SweepWorker().consume();
+            } else {
+                new ExecutionFacade().consume();
+            }
         } catch (RuntimeException | Error e) {
             System.out.println("An unexpected problem occurred:\n" + e);
 
@@ -1,63 +1,103 @@
-import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.MatchResult;
 import java.util.regex.Pattern;
 
 /**
- * Meanings represent elements of the meaning space
+ * Meanings represent elements of the meaning space. There is only ever one
+ * instance of each meaning, so meanings can be compared by identity.
  */
 public final class Meaning extends NonTerminal implements Comparable<Meaning> {
+    private static final Pattern COMPONENT_PATTERN = Pattern
+            .compile(MeaningComponent.CONSTANT_PATTERN + "|" + MeaningComponent.VARIABLE_PATTERN);
+
+    // The canonical instance of every meaning created so far, by its component
+    // or by its first and then its second component
+    private static final Map<MeaningComponent, Meaning> SINGLES = new ConcurrentHashMap<MeaningComponent, Meaning>();
+    private static final Map<MeaningComponent, Map<MeaningComponent, Meaning>> PAIRS = new ConcurrentHashMap<MeaningComponent, Map<MeaningComponent, Meaning>>();
+
+    // The concrete meanings of the meaning space, by coordinates
+    private static final Meaning[][] SPACE;
+
     private final MeaningComponent[] components;
     private final int numVariables;
+    private final String componentString;
+    private final int hash;
 
     public static final String START_CATEGORY = "S";
 
-    public Meaning(String in) {
-        String[] ary = Pattern.compile(MeaningComponent.CONSTANT_PATTERN + "|" + MeaningComponent.VARIABLE_PATTERN)
-                .matcher(in)
-                .results()
-                .map(MatchResult::group)
-                .toArray(String[]::new);
-
-        components = new MeaningComponent[ary.length];
+    static {
+        SPACE = new Meaning[ConstantManager.getNumValues()][ConstantManager.getNumValues()];
 
-        for (int i = 0; i < components.length; i++) {
-            components[i] = MeaningComponent.getInstanceFromString(ary[i]);
+        for (int i = 0; i < SPACE.length; i++) {
+            for (int j = 0; j < SPACE[i].length; j++) {
+                SPACE[i][j] = getInstance(MeaningComponent.getInstanceFromCoordinates(0, i),
+                        MeaningComponent.getInstanceFromCoordinates(1, j));
+            }
         }
+    }
 
+    private Meaning(MeaningComponent[] comps) {
+        components = comps;
         numVariables = countVariables(components);
-        verify();
+        componentString = loadComponentString(components);
+        hash = Objects.hash((Object[]) components);
+    }
+
+    public static Meaning getInstanceFromString(String in) {
+        return getInstanceFromStrings(COMPONENT_PATTERN.matcher(in)
+                .results()
+                .map(MatchResult::group)
+                .toArray(String[]::new));
     }
 
-    public Meaning(String[] ary) {
-        components = new MeaningComponent[ary.length];
+    public static Meaning getInstanceFromStrings(String[] ary) {
+        MeaningComponent[] comps = new MeaningComponent[ary.length];
 
-        for (int i = 0; i < components.length; i++) {
-            components[i] = MeaningComponent.getInstanceFromString(ary[i]);
+        for (int i = 0; i < comps.length; i++) {
+            comps[i] = MeaningComponent.getInstanceFromString(ary[i]);
         }
 
-        numVariables = countVariables(components);
-        verify();
+        return getInstance(comps);
     }
 
-    public Meaning(MeaningComponent... comps) {
-        components = comps;
-        numVariables = countVariables(components);
-        verify();
+    public static Meaning getInstanceFromCoordinates(int i, int j) {
+        if (i >= 0 && i < SPACE.length && j >= 0 && j < SPACE.length) {
+            return SPACE[i][j];
+        }
+
+        return getInstance(MeaningComponent.getInstanceFromCoordinates(0, i),
+                MeaningComponent.getInstanceFromCoordinates(1, j));
     }
 
-    public Meaning(Integer... ints) {
-        if (ints.length != 2) {
-            throw new IllegalArgumentException("bad array length: " + ints.length);
+    public static Meaning getInstance(MeaningComponent... comps) {
+        if (comps.length == 1) {
+            Meaning ret = SINGLES.get(comps[0]);
+            return ret != null ? ret : intern(SINGLES, comps[0], comps);
         }
 
-        components = new MeaningComponent[ints.length];
+        if (comps.length == 2) {
+            Map<MeaningComponent, Meaning> map = PAIRS.get(comps[0]);
 
-        for (int i = 0; i < ints.length; i++) {
-            components[i] = MeaningComponent.getInstanceFromCoordinates(i, ints[i]);
+            if (map == null) {
+                map = PAIRS.computeIfAbsent(comps[0], k -> new ConcurrentHashMap<MeaningComponent, Meaning>());
+            }
+
+            Meaning ret = map.get(comps[1]);
+            return ret != null ? ret : intern(map, comps[1], comps);
         }
 
-        numVariables = countVariables(components);
+        throw new IllegalArgumentException("bad array length: " + comps.length);
+    }
+
+    private static Meaning intern(Map<MeaningComponent, Meaning> map, MeaningComponent key, MeaningComponent[] comps) {
+        Meaning m = new Meaning(comps.clone());
+        Meaning existing = map.putIfAbsent(key, m);
+
+        return existing == null ? m : existing;
     }
 
     private static int countVariables(MeaningComponent[] mcs) {
@@ -72,10 +112,20 @@ public final class Meaning extends NonTerminal implements Comparable<Meaning> {
         return ret;
     }
 
-    private void verify() {
-        if (components.length == 0 || components.length > 2) {
-            throw new IllegalArgumentException("bad array length: " + components.length);
+    private static String loadComponentString(MeaningComponent[] mcs) {
+        // if we have one component only, just return that one's string
+        if (mcs.length == 1) {
+            return mcs[0].getComponentString();
+        }
+
+        // otherwise, list them out separated by commas and then surround with brackets
+        String ret = "";
+
+        for (MeaningComponent c : mcs) {
+            ret += c.getComponentString() + ",";
         }
+
+        return "(" + ret.substring(0, ret.length() - 1) + ")";
     }
 
     public MeaningComponent[] getComponents() {
@@ -89,7 +139,7 @@ public final class Meaning extends NonTerminal implements Comparable<Meaning> {
             ret[i] = components[i].equals(m1) ? m2 : components[i];
         }
 
-        return new Meaning(ret);
+        return getInstance(ret);
     }
 
     public boolean contains(Meaning m) {
@@ -124,6 +174,36 @@ public final class Meaning extends NonTerminal implements Comparable<Meaning> {
         return true;
     }
 
+    /**
+     * Returns every meaning that this meaning is generalizable to: those with each
+     * component either kept or replaced by its variable, and, if this meaning has
+     * more than one component, each of its components on its own
+     *
+     * @return as described above
+     */
+    public Set<Meaning> getGeneralizations() {
+        Set<Meaning> ret = new LinkedHashSet<Meaning>();
+
+        if (components.length == 1) {
+            ret.add(this);
+            ret.add(getInstance(components[0].variable()));
+
+            return ret;
+        }
+
+        for (MeaningComponent first : new MeaningComponent[] { components[0], components[0].variable() }) {
+            for (MeaningComponent second : new MeaningComponent[] { components[1], components[1].variable() }) {
+                ret.add(getInstance(first, second));
+            }
+        }
+
+        for (MeaningComponent mc : components) {
+            ret.add(getInstance(mc));
+        }
+
+        return ret;
+    }
+
     public MeaningComponent getComponentWithCategory(String s) {
         for (MeaningComponent mc : components) {
             if (mc.getCategoryString().equals(s)) {
@@ -150,34 +230,17 @@ public final class Meaning extends NonTerminal implements Comparable<Meaning> {
 
     @Override
     public String getComponentString() {
-        // if we have one component only, just return that one's string
-        if (components.length == 1) {
-            return components[0].getComponentString();
-        }
-
-        // otherwise, list them out separated by commas and then surround with brackets
-        String ret = "";
-
-        for (MeaningComponent c : components) {
-            ret += c.getComponentString() + ",";
-        }
-
-        return "(" + ret.substring(0, ret.length() - 1) + ")";
+        return componentString;
     }
 
     @Override
     public boolean equals(Object o) {
-        try {
-            Meaning m = (Meaning) o;
-            return Arrays.equals(components, m.components);
-        } catch (ClassCastException | NullPointerException e) {
-            return false;
-        }
+        return this == o;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash((Object[]) components);
+        return hash;
     }
 
     @Override
@@ -1,20 +1,42 @@
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Represents a component of a meaning (e.g. a0, b1, X)
+ * Represents a component of a meaning (e.g. a0, b1, X). There is only ever one
+ * instance of each component, so components can be compared by identity.
  */
 public abstract class MeaningComponent extends NonTerminal {
     private static final String[] CONSTANTS = { "A", "B" };
     private static final String[] VARIABLES = { "X", "Y" };
 
+    // The canonical instance of every component created so far, by string
+    private static final Map<String, MeaningComponent> INSTANCES = new ConcurrentHashMap<String, MeaningComponent>();
+
+    // The constant components of the meaning space (and the A-1 and B-1
+    // placeholders), by dimension and then by value + 1
+    private static final MeaningComponent[][] COORDINATES;
+
     private final String string;
+    private final int hash;
 
     public static final String VARIABLE_PATTERN = "[X-Z]";
     public static final String CONSTANT_PATTERN = "[AB](\\-|\\d)+";
 
+    static {
+        COORDINATES = new MeaningComponent[CONSTANTS.length][ConstantManager.getNumValues() + 1];
+
+        for (int i = 0; i < COORDINATES.length; i++) {
+            for (int j = 0; j < COORDINATES[i].length; j++) {
+                COORDINATES[i][j] = getInstanceFromString(CONSTANTS[i] + (j - 1));
+            }
+        }
+    }
+
     // We have a private constructor to control the creation of MeaningComponents
     private MeaningComponent(String s) {
         string = s;
+        hash = Objects.hash(string);
     }
 
     /**
@@ -27,15 +49,22 @@ public abstract class MeaningComponent extends NonTerminal {
      *                                  format
      */
     public static final MeaningComponent getInstanceFromString(String in) {
-        if (in.matches(CONSTANT_PATTERN)) {
-            return new ConstantMeaningComponent(in);
+        MeaningComponent ret = INSTANCES.get(in);
+
+        if (ret != null) {
+            return ret;
         }
 
-        if (in.matches(VARIABLE_PATTERN)) {
-            return new VariableMeaningComponent(in);
+        if (in.matches(CONSTANT_PATTERN)) {
+            ret = new ConstantMeaningComponent(in);
+        } else if (in.matches(VARIABLE_PATTERN)) {
+            ret = new VariableMeaningComponent(in);
+        } else {
+            throw new IllegalArgumentException("no suitable constructor found for string " + in);
         }
 
-        throw new IllegalArgumentException("no suitable constructor found for string " + in);
+        MeaningComponent existing = INSTANCES.putIfAbsent(in, ret);
+        return existing == null ? ret : existing;
     }
 
     /**
@@ -46,7 +75,11 @@ public abstract class MeaningComponent extends NonTerminal {
      * @return a constant meaning component with the specified values
      */
     public static final MeaningComponent getInstanceFromCoordinates(int dimension, int value) {
-        return new ConstantMeaningComponent(dimension, value);
+        if (value >= -1 && value + 1 < COORDINATES[dimension].length) {
+            return COORDINATES[dimension][value + 1];
+        }
+
+        return getInstanceFromString(CONSTANTS[dimension] + value);
     }
 
     /**
@@ -81,17 +114,12 @@ public abstract class MeaningComponent extends NonTerminal {
 
     @Override
     public final boolean equals(Object o) {
-        try {
-            MeaningComponent mc = (MeaningComponent) o;
-            return string.equals(mc.string);
-        } catch (ClassCastException | NullPointerException e) {
-            return false;
-        }
+        return this == o;
     }
 
     @Override
     public final int hashCode() {
-        return Objects.hash(string);
+        return hash;
     }
 
     /**
@@ -127,12 +155,6 @@ public abstract class MeaningComponent extends NonTerminal {
             dimension = s.substring(0, index);
         }
 
-        private ConstantMeaningComponent(int d, int v) {
-            super(CONSTANTS[d] + v);
-
-            dimension = CONSTANTS[d];
-        }
-
         @Override
         public boolean isVariable() {
             return IS_VARIABLE;
@@ -142,7 +164,7 @@ public abstract class MeaningComponent extends NonTerminal {
         public MeaningComponent variable() {
             for (int i = 0; i < CONSTANTS.length; i++) {
                 if (CONSTANTS[i].equals(dimension)) {
-                    return new VariableMeaningComponent(VARIABLES[i]);
+                    return getInstanceFromString(VARIABLES[i]);
                 }
             }
 
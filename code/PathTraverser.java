@@ -4,6 +4,8 @@ import java.util.Arrays;
 import java.util.Deque;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeSet;
 
 public final class PathTraverser implements Iterable<PathTraverser.PathEntry> {
     public static final class PathEntry {
@@ -25,11 +27,21 @@ public final class PathTraverser implements Iterable<PathTraverser.PathEntry> {
     }
 
     private final String rootPath;
+    private final Archive archive;
     private final Deque<String> fileStack;
     private String[] currentList;
 
     public PathTraverser(String rp) {
+        this(rp, null);
+    }
+
+    /**
+     * Traverses the given path, showing the files in the given archive, if
+     * there is one, alongside those on the disk
+     */
+    public PathTraverser(String rp, Archive a) {
         rootPath = rp;
+        archive = a;
         fileStack = new ArrayDeque<String>();
 
         fileStack.addLast(rootPath);
@@ -68,7 +80,7 @@ public final class PathTraverser implements Iterable<PathTraverser.PathEntry> {
                 if (index < currentList.length) {
                     index++;
                     return new PathEntry(currentList[index - 1],
-                            new File(fileStack.peekLast() + "\\" + currentList[index - 1]).list() != null);
+                            list(fileStack.peekLast() + "\\" + currentList[index - 1]) != null);
                 }
 
                 throw new NoSuchElementException("no more entries");
@@ -82,13 +94,29 @@ public final class PathTraverser implements Iterable<PathTraverser.PathEntry> {
     }
 
     private void updateCurrentList() {
-        currentList = new File(fileStack.peekLast()).list();
+        currentList = list(fileStack.peekLast());
 
         if (currentList != null) {
             Arrays.sort(currentList, PathTraverser::compareStrings);
         }
     }
 
+    // Lists the files and directories on the disk and the files and sections in
+    // the archive at the given path, or returns null if it isn't a directory in
+    // either
+    private String[] list(String path) {
+        String[] onDisk = new File(path).list();
+        String[] inArchive = archive == null ? null : archive.list(new File(path.replace('\\', File.separatorChar)));
+
+        if (onDisk == null || inArchive == null) {
+            return onDisk == null ? inArchive : onDisk;
+        }
+
+        Set<String> ret = new TreeSet<String>(Arrays.asList(onDisk));
+        ret.addAll(Arrays.asList(inArchive));
+        return ret.toArray(new String[ret.size()]);
+    }
+
     private static int compareStrings(String s1, String s2) {
         if (s1.contains(".")) {
             if (s2.contains(".")) {
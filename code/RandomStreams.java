@@ -0,0 +1,68 @@
+import java.util.random.RandomGenerator.SplittableGenerator;
+import java.util.random.RandomGeneratorFactory;
+
+/**
+ * Creates the random number generators used throughout the simulations. Every
+ * generator is seeded or split from another one, so a run can be reproduced
+ * from its seed alone, and none of them are synchronized.
+ */
+public final class RandomStreams {
+    // Any algorithm in the JDK's SplittableGenerator family can be swapped in here
+    private static final String ALGORITHM = "L64X128MixRandom";
+    private static final RandomGeneratorFactory<SplittableGenerator> FACTORY = RandomGeneratorFactory.of(ALGORITHM);
+
+    private RandomStreams() {
+        throw new AssertionError("objects of class RandomStreams should not be able to be instantiated");
+    }
+
+    public static SplittableGenerator create(long seed) {
+        return FACTORY.create(seed);
+    }
+
+    public static long newSeed() {
+        return FACTORY.create().nextLong();
+    }
+
+    /**
+     * Returns the given string with each character independently dropped with the
+     * given probability. Rather than drawing once per character, this draws the
+     * number of characters kept before each drop from a geometric distribution,
+     * so it takes one draw per dropped character (plus one).
+     * 
+     * @param random      the generator to draw from
+     * @param in          the string to erode
+     * @param probability the probability of dropping each character
+     * @param buffer      a buffer to build the result in, which is cleared first
+     * @return as described above
+     */
+    public static String erode(SplittableGenerator random, String in, double probability, StringBuilder buffer) {
+        if (probability <= 0) {
+            return in;
+        }
+
+        if (probability >= 1) {
+            return "";
+        }
+
+        buffer.setLength(0);
+
+        double logKeep = Math.log1p(-probability);
+        int start = 0;
+
+        while (start < in.length()) {
+            // 1 - nextDouble() is in (0, 1], so the logarithm is finite
+            double skip = Math.floor(Math.log(1 - random.nextDouble()) / logKeep);
+
+            if (skip >= in.length() - start) {
+                buffer.append(in, start, in.length());
+                break;
+            }
+
+            int drop = start + (int) skip;
+            buffer.append(in, start, drop);
+            start = drop + 1;
+        }
+
+        return buffer.toString();
+    }
+}
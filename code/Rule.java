@@ -2,6 +2,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Function;
 
 public final class Rule implements Comparable<Rule> {
     // This is mostly for cosmetic reasons
@@ -10,6 +11,12 @@ public final class Rule implements Comparable<Rule> {
     private final Meaning mu;
     private final String lambda;
 
+    // The signal precompiled into a template: literal segments with a variable
+    // slot between each consecutive pair
+    private final String[] segments;
+    private final MeaningComponent[] slots;
+    private final boolean terminal;
+
     /**
      * Constructs a rule from a string representation. This is mostly used to load
      * in agent grammars from a string representation.
@@ -18,11 +25,17 @@ public final class Rule implements Comparable<Rule> {
      *           space-separated
      */
     public Rule(String in) {
-        System.out.println(in);
         String[] split = in.split("\\s+");
 
-        mu = new Meaning(Arrays.copyOf(split, split.length - 1));
+        mu = Meaning.getInstanceFromStrings(Arrays.copyOf(split, split.length - 1));
         lambda = split[split.length - 1];
+
+        List<String> segs = new ArrayList<String>();
+        List<MeaningComponent> vars = new ArrayList<MeaningComponent>();
+        terminal = compile(segs, vars);
+
+        segments = segs.toArray(new String[0]);
+        slots = vars.toArray(new MeaningComponent[0]);
     }
 
     /**
@@ -35,6 +48,13 @@ public final class Rule implements Comparable<Rule> {
     public Rule(Meaning meaning, String string) {
         mu = meaning;
         lambda = string;
+
+        List<String> segs = new ArrayList<String>();
+        List<MeaningComponent> vars = new ArrayList<MeaningComponent>();
+        terminal = compile(segs, vars);
+
+        segments = segs.toArray(new String[0]);
+        slots = vars.toArray(new MeaningComponent[0]);
     }
 
     /**
@@ -69,33 +89,82 @@ public final class Rule implements Comparable<Rule> {
     }
 
     /**
-     * Returns the result of applying this rule to the given string, or an empty
-     * string if the meaning in the given string is not generalizable to the meaning
-     * of this rule. This basically means that this method returns an empty string
-     * when this rule doesn't apply.
+     * Returns the signal this rule gives for the given meaning, or null if the
+     * meaning is not generalizable to the meaning of this rule (or has a different
+     * number of components). Each variable slot in the signal is filled with the
+     * signal that the given derivation returns for the component of the meaning
+     * in that slot's category; if the derivation returns null, so does this
+     * method.
      * 
-     * @param in the string to apply this rule to
+     * @param m          the meaning to apply this rule to
+     * @param derivation the shortest signal for a single meaning component, or
+     *                   null if there is none
      * @return as described above
      */
-    public String apply(String in) {
-        Meaning m = new Meaning(in);
+    public String apply(Meaning m, Function<MeaningComponent, String> derivation) {
+        if (!terminal || m.getComponents().length != mu.getComponents().length || !m.isGeneralizableTo(mu)) {
+            return null;
+        }
 
-        if (!m.isGeneralizableTo(mu)) {
-            return "";
+        if (slots.length == 0) {
+            return lambda;
         }
 
-        String l2 = lambda;
-        List<MeaningComponent> include = new ArrayList<MeaningComponent>();
-        for (int i = 0; i < m.getComponents().length; i++) {
-            MeaningComponent toReplace = mu.getComponentWithCategory(m.getComponents()[i].getCategoryString());
+        StringBuilder sb = new StringBuilder(segments[0]);
 
-            if (toReplace != null) {
-                l2 = l2.replace(toReplace.toString(), m.getComponents()[i].toString());
-                include.add(m.getComponents()[i]);
+        for (int i = 0; i < slots.length; i++) {
+            String sub = derivation.apply(m.getComponentWithCategory(slots[i].getCategoryString()));
+
+            if (sub == null) {
+                return null;
             }
+
+            sb.append(sub);
+            sb.append(segments[i + 1]);
         }
 
-        return in.replace(new Meaning(include.toArray(new MeaningComponent[0])).toString(), l2);
+        return sb.toString();
+    }
+
+    // Splits the signal around the variables of a multi-component meaning (e.g.
+    // "abA:Xcd" becomes "ab", X, and "cd"), returning true if everything else in
+    // it is terminal
+    private boolean compile(List<String> segs, List<MeaningComponent> vars) {
+        List<MeaningComponent> candidates = new ArrayList<MeaningComponent>();
+
+        if (mu.getComponents().length > 1) {
+            for (MeaningComponent mc : mu.getComponents()) {
+                if (mc.isVariable()) {
+                    candidates.add(mc);
+                }
+            }
+        }
+
+        StringBuilder literal = new StringBuilder();
+        int start = 0;
+        int i = 0;
+
+        outer: while (i < lambda.length()) {
+            for (MeaningComponent mc : candidates) {
+                String slot = mc.toString();
+
+                if (lambda.startsWith(slot, i)) {
+                    segs.add(lambda.substring(start, i));
+                    vars.add(mc);
+
+                    i += slot.length();
+                    start = i;
+                    continue outer;
+                }
+            }
+
+            literal.append(lambda.charAt(i));
+            i++;
+        }
+
+        segs.add(lambda.substring(start));
+
+        return literal.length() > 0 ? literal.toString().matches(Agent.TERMINAL_PATTERN) : vars.size() > 0;
     }
 
     @Override
@@ -1,21 +1,35 @@
-import java.util.Random;
+import java.io.File;
+import java.util.Scanner;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.random.RandomGenerator.SplittableGenerator;
 
 public abstract class Run implements Consumable{
     private final long seed;
-    private final Random random;
+    private final SplittableGenerator random;
     
     private boolean used;
-    private String string;
+    private RunOutput output;
+    
+    private long elapsedTime;
+    private final AtomicInteger generations;
+    
+    // Number of generators split off so far, which together with the seed is
+    // the whole state of this run's random number generator
+    private long splits;
+    private File checkpoint;
     
     public Run(long s){
         seed = s;
-        random = new Random(s);
+        random = RandomStreams.create(s);
+        generations = new AtomicInteger();
         used = false;
     }
 
     public Run(){
-        seed = new Random().nextLong();
-        random = new Random(seed);
+        seed = RandomStreams.newSeed();
+        random = RandomStreams.create(seed);
+        generations = new AtomicInteger();
         used = false;
     }
     
@@ -26,12 +40,21 @@ public abstract class Run implements Consumable{
     
     @Override
     public final void consume(){
-        string = getSimulationString();
+        getOutput();
         used = true;
     }
     
-    public final long nextLong(){
-        return random.nextLong();
+    public final SplittableGenerator split(){
+        splits++;
+        return random.split();
+    }
+    
+    /**
+     * Sets the file this run saves its state to every so many generations, as
+     * given by the checkpoint interval, and resumes from if it already exists
+     */
+    public final void setCheckpoint(File f){
+        checkpoint = f;
     }
     
     public final long getSeed(){
@@ -39,12 +62,98 @@ public abstract class Run implements Consumable{
     }
     
     public final String getSimulationString(){
-        if(string == null){
-            string = generateRunString();
+        return getOutput().toString();
+    }
+    
+    public final RunOutput getOutput(){
+        if(output == null){
+            long startTime = System.currentTimeMillis();
+            RunOutput out = new RunOutput();
+            generateOutput(out);
+            output = out;
+            elapsedTime = System.currentTimeMillis() - startTime;
+            
+            if(checkpoint != null){
+                checkpoint.delete();
+            }
         } 
         
-        return string;
+        return output;
+    }
+    
+    /**
+     * Returns how long generating the simulation string took, in milliseconds,
+     * or 0 if it has not been generated yet
+     */
+    public final long getElapsedTime(){
+        return elapsedTime;
+    }
+    
+    /**
+     * Returns the number of generations run so far, including those that were
+     * discarded
+     */
+    public final int getGenerationCount(){
+        return generations.get();
+    }
+    
+    /**
+     * Returns a rough estimate of how many generations this run will take, used
+     * to start the longest runs first when there is no record of them
+     */
+    public abstract double getEstimatedCost();
+    
+    protected final Agent step(Generation g){
+        g.converse();
+        generations.incrementAndGet();
+        
+        return g.getListener();
+    }
+    
+    /**
+     * Saves the state given by the subclass, after the state of this run's
+     * random number generator, if a checkpoint is due after the generation just
+     * run. Every agent that outlives the generation should be reseeded from
+     * this run right after, as restoring it from the checkpoint does.
+     */
+    protected final void checkpoint(Supplier<String> state){
+        int interval = ConstantManager.getCheckpointInterval();
+        
+        if(checkpoint != null && interval > 0 && generations.get() % interval == 0){
+            BasicIO.writeAtomically(checkpoint, seed + " " + splits + " " + generations.get() + "\n" + state.get());
+        }
+    }
+    
+    /**
+     * Restores the state of this run's random number generator from its
+     * checkpoint, if it has one that was saved with the same seed
+     * 
+     * @return a scanner over the state the subclass saved, or null if there is
+     *         nothing to restore
+     */
+    protected final Scanner restore(){
+        if(checkpoint == null || !checkpoint.exists()){
+            return null;
+        }
+        
+        Scanner scan = new Scanner(BasicIO.read(checkpoint));
+        
+        if(scan.nextLong() != seed){
+            scan.close();
+            return null;
+        }
+        
+        long count = scan.nextLong();
+        
+        while(splits < count){
+            split();
+        }
+        
+        generations.set(scan.nextInt());
+        scan.nextLine();
+        
+        return scan;
     }
     
-    protected abstract String generateRunString();
+    protected abstract void generateOutput(RunOutput out);
 }
@@ -0,0 +1,60 @@
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Scanner;
+
+/**
+ * The wall time and generation count of each run of a sweep, keyed by the
+ * section and name of the run. The history of one execution is saved to a file
+ * so that the next can schedule its longest runs first.
+ */
+public final class RunHistory {
+    private final File file;
+    private final Map<String, long[]> records;
+
+    public RunHistory(File f) {
+        file = f;
+        records = new LinkedHashMap<String, long[]>();
+
+        if (file.exists()) {
+            Scanner scan = new Scanner(BasicIO.read(file));
+
+            while (scan.hasNext()) {
+                String key = scan.next() + "/" + scan.next();
+                records.put(key, new long[] { scan.nextLong(), scan.nextLong() });
+            }
+
+            scan.close();
+        }
+    }
+
+    public boolean contains(String section, String name) {
+        return records.containsKey(section + "/" + name);
+    }
+
+    public long getElapsedTime(String section, String name) {
+        return records.get(section + "/" + name)[0];
+    }
+
+    public long getGenerationCount(String section, String name) {
+        return records.get(section + "/" + name)[1];
+    }
+
+    public void record(String section, String name, Run r) {
+        record(section, name, r.getElapsedTime(), r.getGenerationCount());
+    }
+
+    public void record(String section, String name, long elapsedTime, long generations) {
+        records.put(section + "/" + name, new long[] { elapsedTime, generations });
+    }
+
+    public void write() {
+        StringBuilder sb = new StringBuilder();
+
+        for (Map.Entry<String, long[]> entry : records.entrySet()) {
+            sb.append(entry.getKey().replace('/', ' ') + " " + entry.getValue()[0] + " " + entry.getValue()[1] + "\n");
+        }
+
+        BasicIO.write(file, sb.toString());
+    }
+}
\ No newline at end of file
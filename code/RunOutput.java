@@ -0,0 +1,60 @@
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The output of a run as a sequence of sections, each enclosed in lines holding
+ * its flag. The sections are kept apart as well as combined, so that they can
+ * be handed straight to transcriptions without parsing the combined text. It
+ * also keeps the numeric columns a run records, such as its irregularity
+ * series, for writing to a series file.
+ */
+public final class RunOutput {
+    private final StringBuilder combined;
+    private final Map<String, String> sections;
+    private final Map<String, int[]> columns;
+
+    public RunOutput() {
+        combined = new StringBuilder();
+        sections = new HashMap<String, String>();
+        columns = new LinkedHashMap<String, int[]>();
+    }
+
+    /**
+     * Adds a section to the end of this output
+     *
+     * @param flag     the flag of the section
+     * @param contents the contents of the section, ending with a newline unless
+     *                 empty
+     */
+    public void addSection(String flag, CharSequence contents) {
+        String str = contents.toString();
+
+        combined.append(flag + "\n");
+        combined.append(str);
+        combined.append(flag + "\n");
+
+        sections.putIfAbsent(flag, str);
+    }
+
+    /**
+     * Returns the contents of the first section with the given flag, or null if
+     * there is none
+     */
+    public String getSection(String flag) {
+        return sections.get(flag);
+    }
+
+    public void addColumn(String name, int[] values) {
+        columns.put(name, values.clone());
+    }
+
+    public Map<String, int[]> getColumns() {
+        return columns;
+    }
+
+    @Override
+    public String toString() {
+        return combined.toString();
+    }
+}
\ No newline at end of file
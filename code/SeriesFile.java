@@ -0,0 +1,172 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A binary file of numeric columns of equal length, with a header naming the
+ * run they came from, its seed and a hash of the parameters it ran with. The
+ * columns are stored one after another, so each can be read straight out of the
+ * file without parsing any text.
+ */
+public final class SeriesFile {
+    private static final int MAGIC = 0x53455231;
+
+    private static final byte INT_COLUMN = 0;
+    private static final byte DOUBLE_COLUMN = 1;
+
+    private final String name;
+    private final long seed;
+    private final long configHash;
+    private final List<String> columnNames;
+    private final List<double[]> columns;
+    private final List<Byte> types;
+
+    public SeriesFile(String n, long s, long hash) {
+        name = n;
+        seed = s;
+        configHash = hash;
+        columnNames = new ArrayList<String>();
+        columns = new ArrayList<double[]>();
+        types = new ArrayList<Byte>();
+    }
+
+    public long getConfigHash() {
+        return configHash;
+    }
+
+    public void addColumn(String columnName, int[] values) {
+        double[] ary = new double[values.length];
+
+        for (int i = 0; i < values.length; i++) {
+            ary[i] = values[i];
+        }
+
+        add(columnName, ary, INT_COLUMN);
+    }
+
+    public double[] getColumn(String columnName) {
+        int i = columnNames.indexOf(columnName);
+
+        if (i < 0) {
+            throw new IllegalArgumentException("no column " + columnName + " in series " + name);
+        }
+
+        return columns.get(i).clone();
+    }
+
+    public byte[] toByteArray() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeUTF(name);
+            out.writeLong(seed);
+            out.writeLong(configHash);
+            out.writeInt(columns.isEmpty() ? 0 : columns.get(0).length);
+            out.writeInt(columns.size());
+
+            for (int i = 0; i < columns.size(); i++) {
+                out.writeUTF(columnNames.get(i));
+                out.writeByte(types.get(i));
+            }
+
+            for (int i = 0; i < columns.size(); i++) {
+                for (double d : columns.get(i)) {
+                    if (types.get(i) == INT_COLUMN) {
+                        out.writeInt((int) d);
+                    } else {
+                        out.writeDouble(d);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads a series file by memory-mapping it, or by reading it whole if it is
+     * compressed or archived
+     *
+     * @param file the file
+     * @return the series
+     */
+    public static SeriesFile read(File file) {
+        if (!BasicIO.canMap(file)) {
+            return read(file, ByteBuffer.wrap(BasicIO.readBytes(file)));
+        }
+
+        try (FileChannel fc = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return read(file, fc.map(MapMode.READ_ONLY, 0, fc.size()));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("bad file: " + file);
+        }
+    }
+
+    private static SeriesFile read(File file, ByteBuffer buf) {
+        if (buf.getInt() != MAGIC) {
+            throw new IllegalArgumentException("not a series file: " + file);
+        }
+
+        SeriesFile ret = new SeriesFile(readString(buf), buf.getLong(), buf.getLong());
+        int rows = buf.getInt();
+        int numColumns = buf.getInt();
+
+        String[] names = new String[numColumns];
+        byte[] columnTypes = new byte[numColumns];
+
+        for (int i = 0; i < numColumns; i++) {
+            names[i] = readString(buf);
+            columnTypes[i] = buf.get();
+        }
+
+        for (int i = 0; i < numColumns; i++) {
+            double[] ary = new double[rows];
+
+            if (columnTypes[i] == INT_COLUMN) {
+                for (int j = 0; j < rows; j++) {
+                    ary[j] = buf.getInt();
+                }
+            } else if (columnTypes[i] == DOUBLE_COLUMN) {
+                buf.asDoubleBuffer().get(ary);
+                buf.position(buf.position() + rows * Double.BYTES);
+            } else {
+                throw new IllegalArgumentException("bad column type " + columnTypes[i] + " in series file: " + file);
+            }
+
+            ret.add(names[i], ary, columnTypes[i]);
+        }
+
+        return ret;
+    }
+
+    private void add(String columnName, double[] values, byte type) {
+        if (!columns.isEmpty() && columns.get(0).length != values.length) {
+            throw new IllegalArgumentException("column " + columnName + " has " + values.length + " values, not "
+                    + columns.get(0).length);
+        }
+
+        columnNames.add(columnName);
+        columns.add(values);
+        types.add(type);
+    }
+
+    // Reads a string as written by DataOutput.writeUTF, which for the plain
+    // names used here is the same as UTF-8
+    private static String readString(ByteBuffer buf) {
+        byte[] bytes = new byte[buf.getShort() & 0xffff];
+        buf.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
\ No newline at end of file
@@ -1,6 +1,15 @@
-import java.util.Random;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Scanner;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.random.RandomGenerator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
 
 public final class SimulationCoordinator implements Consumable {
@@ -14,43 +23,67 @@ public final class SimulationCoordinator implements Consumable {
     private static final String HIGH_TO_LOW_STRING = "hightolow";
     private static final String LOW_TO_HIGH_STRING = "lowtohigh";
     private static final String ANALYSIS_STRING = "analysis";
+    private static final String HISTORY_STRING = "runtimes";
+    private static final String CHECKPOINT_STRING = "checkpoint";
+    private static final String SEED_STRING = "seed";
+    private static final String SERIES_EXTENSION = "bin";
 
-    private static final long TIMEOUT = 10;
-    private static final TimeUnit TIME_UNIT = TimeUnit.SECONDS;
+    private static final TimeUnit TIME_UNIT = TimeUnit.MILLISECONDS;
+    private static final long TIMEOUT = 500;
 
-    private static final FileFormat BASE = new FileFormat(BASE_STRING, "txt");
+    public static final File QUEUE_DIRECTORY = new File("queue");
 
-    private static final FileFormat HOMOGENEOUS = BASE.getFileFormatWithSubFolder(HOMOGENEOUS_STRING, "out");
+    private static final FileFormat BASE = new FileFormat(BASE_STRING, "txt", ConstantManager.isCompressed());
+
+    // Other processes can't add to the archive, so a sharded sweep never uses one
+    private static final Archive ARCHIVE = ConstantManager.isArchived() && !ConstantManager.isSharded()
+            ? new Archive(BASE.getDirectory(), "archive")
+            : null;
+    private static final FileFormat SECTIONS = BASE.getFileFormatWithArchive(ARCHIVE);
+
+    private static final FileFormat CHECKPOINT = BASE.getFileFormatWithSubFolder(CHECKPOINT_STRING);
+
+    private static final FileFormat HOMOGENEOUS = SECTIONS.getFileFormatWithSubFolder(HOMOGENEOUS_STRING, "out");
 
     private static final FileFormat HOMOGENEOUS_IRREGULARITY = HOMOGENEOUS
             .getFileFormatWithSubFolder(IRREGULARITY_STRING);
+    private static final FileFormat HOMOGENEOUS_SERIES = HOMOGENEOUS_IRREGULARITY
+            .getFileFormatWithExtension(SERIES_EXTENSION);
     private static final FileFormat HOMOGENEOUS_GRAMMAR = HOMOGENEOUS.getFileFormatWithSubFolder(GRAMMAR_STRING);
     private static final FileFormat HOMOGENEOUS_ANALYSIS = HOMOGENEOUS.getFileFormatWithSubFolder(ANALYSIS_STRING);
     private static final FileFormat HOMOGENEOUS_HEATMAP = HOMOGENEOUS.getFileFormatWithSubFolder(HEATMAP_STRING);
 
-    private static final FileFormat HETEROGENEOUS = BASE.getFileFormatWithSubFolder(HETEROGENEOUS_STRING, "out");
+    private static final FileFormat HETEROGENEOUS = SECTIONS.getFileFormatWithSubFolder(HETEROGENEOUS_STRING, "out");
 
     private static final FileFormat HIGH_TO_LOW = HETEROGENEOUS.getFileFormatWithSubFolder(HIGH_TO_LOW_STRING);
     private static final FileFormat HIGH_TO_LOW_IRREGULARITY = HIGH_TO_LOW
             .getFileFormatWithSubFolder(IRREGULARITY_STRING);
+    private static final FileFormat HIGH_TO_LOW_SERIES = HIGH_TO_LOW_IRREGULARITY
+            .getFileFormatWithExtension(SERIES_EXTENSION);
     private static final FileFormat HIGH_TO_LOW_ANALYSIS = HIGH_TO_LOW.getFileFormatWithSubFolder(ANALYSIS_STRING);
 
     private static final FileFormat LOW_TO_HIGH = HETEROGENEOUS.getFileFormatWithSubFolder(LOW_TO_HIGH_STRING);
     private static final FileFormat LOW_TO_HIGH_IRREGULARITY = LOW_TO_HIGH
             .getFileFormatWithSubFolder(IRREGULARITY_STRING);
+    private static final FileFormat LOW_TO_HIGH_SERIES = LOW_TO_HIGH_IRREGULARITY
+            .getFileFormatWithExtension(SERIES_EXTENSION);
     private static final FileFormat LOW_TO_HIGH_ANALYSIS = LOW_TO_HIGH.getFileFormatWithSubFolder(ANALYSIS_STRING);
 
-    private final Random random;
+    private final RandomGenerator random;
     private final long seed;
 
     private StringBuilder log;
+    private ExecutorService executor;
+    private RunHistory history;
+    private WorkQueue queue;
+    private WriteBehind writes;
 
     private String coordinatorStatus;
     private SimulationWriter[] currentWriters;
     private boolean used;
 
     public SimulationCoordinator(long s) {
-        random = new Random(s);
+        random = RandomStreams.create(s);
         seed = s;
 
         log = new StringBuilder();
@@ -59,9 +92,17 @@ public final class SimulationCoordinator implements Consumable {
         used = false;
     }
 
+    // When resuming, the seed is that of the sweep being resumed
     public SimulationCoordinator() {
-        seed = new Random().nextLong();
-        random = new Random(seed);
+        File saved = BASE.getFile(SEED_STRING);
+
+        if (ConstantManager.isResuming() && saved.exists()) {
+            seed = Long.parseLong(BasicIO.read(saved).trim());
+        } else {
+            seed = RandomStreams.newSeed();
+        }
+
+        random = RandomStreams.create(seed);
 
         log = new StringBuilder();
         coordinatorStatus = "Starting simulations";
@@ -78,16 +119,60 @@ public final class SimulationCoordinator implements Consumable {
         log.append("Seed for this execution: " + seed + "\n\n");
         log.append("Simulation seeds:\n");
 
-        runSimulationsHomogeneous();
-        int[] indices = printAnalysisHomogeneous();
-        printHeatMap();
+        BasicIO.write(BASE.getFile(SEED_STRING), seed + "\n");
+
+        if (!ConstantManager.isResuming()) {
+            for (File f : CHECKPOINT.getDirectory().listFiles()) {
+                f.delete();
+            }
+
+            if (ARCHIVE != null) {
+                ARCHIVE.clear();
+            }
+        }
 
-        log.append("Language " + indices[0] + " was the least irregular and language " + indices[1]
-                + " was the most irregular\n\n");
+        history = new RunHistory(BASE.getFile(HISTORY_STRING));
+        writes = new WriteBehind(ConstantManager.getWriteBehindCapacity());
+        executor = ConstantManager.isWorkStealing() ? new ForkJoinPool(ConstantManager.getNumThreads())
+                : Executors.newFixedThreadPool(ConstantManager.getNumThreads());
 
-        runSimulationsHeterogeneous(indices[0], indices[1]);
-        printAnalysisHeterogeneous();
+        if (ConstantManager.isSharded()) {
+            queue = new WorkQueue(QUEUE_DIRECTORY);
+            queue.clear();
+        }
+
+        Throwable failure = null;
+
+        try {
+            int[] indices = runSimulationsHomogeneous();
+
+            log.append("Language " + indices[0] + " was the least irregular and language " + indices[1]
+                    + " was the most irregular\n\n");
+
+            runSimulationsHeterogeneous(indices[0], indices[1]);
+        } catch (Throwable t) {
+            failure = t;
+            throw t;
+        } finally {
+            // Each step is taken even if one before it fails, and the queue is
+            // always closed so that workers in other processes stop
+            RuntimeException cleanup = cleanUp(failure, null, executor::shutdownNow);
+            cleanup = cleanUp(failure, cleanup, writes::close);
+
+            if (ARCHIVE != null) {
+                cleanup = cleanUp(failure, cleanup, ARCHIVE::sync);
+            }
+
+            if (queue != null) {
+                cleanup = cleanUp(failure, cleanup, queue::close);
+            }
+
+            if (cleanup != null) {
+                throw cleanup;
+            }
+        }
 
+        history.write();
         printConstantValues();
 
         log.append((System.currentTimeMillis() - startTime) + "ms to execute\n");
@@ -98,78 +183,141 @@ public final class SimulationCoordinator implements Consumable {
         coordinatorStatus = "Simulations done";
     }
 
-    private void runSimulationsHomogeneous() {
+    // Each run is analyzed and added to the heat map as soon as it finishes, so
+    // only choosing the least and most irregular languages waits for them all
+    private int[] runSimulationsHomogeneous() {
         log.append("Homogeneous runs:\n");
 
-        Transcription totalTranscription = new Transcription(HOMOGENEOUS_IRREGULARITY.getFile("total"), "irregularity");
-        currentWriters = new SimulationWriter[ConstantManager.getNumLanguages()];
+        TranscriptionAggregator totalTranscription = new TranscriptionAggregator(
+                HOMOGENEOUS_IRREGULARITY.getFile("total"), "irregularity", ConstantManager.getNumLanguages(), writes);
+        String[] specs = new String[ConstantManager.getNumLanguages()];
         coordinatorStatus = "Running homogeneous simulations";
 
         for (int i = 0; i < ConstantManager.getNumLanguages(); i++) {
             long simSeed = random.nextLong();
             log.append("Simulation " + i + " seed: " + simSeed + "\n");
 
-            Run s = new HomogeneousRun(simSeed);
-            currentWriters[i] = new SimulationWriter(i + "", HOMOGENEOUS, s, transcriptionArray(i, totalTranscription));
+            specs[i] = HOMOGENEOUS_STRING + " " + i + " " + simSeed;
         }
 
-        executeAll(currentWriters);
-        totalTranscription.print();
-    }
+        double[] means = new double[ConstantManager.getNumLanguages()];
+        IrregularityHeatMap ihm = new IrregularityHeatMap();
 
-    private static int[] printAnalysisHomogeneous() {
-        ListAnalyzer first = constructAndPrintHomogeneous("0");
+        Consumer<String> analysis = name -> {
+            means[Integer.parseInt(name)] = constructAndPrintHomogeneous(name).getMean();
+            IrregularityHeatMap cur = new IrregularityHeatMap(BasicIO.read(HOMOGENEOUS_HEATMAP.getFile(name)));
+
+            synchronized (ihm) {
+                ihm.add(cur);
+            }
+        };
 
-        double lowest = first.getMean();
-        double highest = first.getMean();
+        if (queue == null) {
+            currentWriters = new SimulationWriter[specs.length];
+
+            for (int i = 0; i < specs.length; i++) {
+                currentWriters[i] = createWriter(specs[i], null, totalTranscription.getPart(i));
+                currentWriters[i].setWriteBehind(writes);
+            }
+
+            awaitAll(HOMOGENEOUS_STRING, currentWriters, submitAll(HOMOGENEOUS_STRING, currentWriters, analysis));
+        } else {
+            runQueued(specs);
+
+            for (int i = 0; i < specs.length; i++) {
+                totalTranscription.getPart(i).appendFromFile(HOMOGENEOUS.getFile(i + ""));
+                analysis.accept(i + "");
+            }
+        }
+
+        totalTranscription.close();
+        sync();
+
+        constructAndPrintHomogeneous("total");
+        BasicIO.write(HOMOGENEOUS_HEATMAP.getFile("total"), ihm.getHeatMap());
 
         int lowestIndex = 0;
         int highestIndex = 0;
 
-        for (int i = 1; i < ConstantManager.getNumLanguages(); i++) {
-            ListAnalyzer la = constructAndPrintHomogeneous(i + "");
-            double mean = la.getMean();
-
-            if (mean < lowest) {
-                lowest = mean;
+        for (int i = 1; i < means.length; i++) {
+            if (means[i] < means[lowestIndex]) {
                 lowestIndex = i;
-            } else if (mean > highest) {
-                highest = mean;
+            } else if (means[i] > means[highestIndex]) {
                 highestIndex = i;
             }
         }
 
-        constructAndPrintHomogeneous("total");
         return new int[] { lowestIndex, highestIndex };
     }
 
-    private static void printHeatMap() {
-        IrregularityHeatMap ihm = new IrregularityHeatMap();
+    // The two sweeps share the executor, and each run is analyzed as soon as it
+    // finishes
+    private void runSimulationsHeterogeneous(int low, int high) {
+        String[] highToLowSpecs = createSimulationsHighToLow(low, high);
+        String[] lowToHighSpecs = createSimulationsLowToHigh(low, high);
+        coordinatorStatus = "Running heterogeneous simulations";
 
-        for (int i = 0; i < ConstantManager.getNumLanguages(); i++) {
-            String str = BasicIO.read(HOMOGENEOUS_HEATMAP.getFile(i + ""));
-            ihm.add(new IrregularityHeatMap(str));
+        if (queue != null) {
+            String[] specs = new String[highToLowSpecs.length + lowToHighSpecs.length];
+            System.arraycopy(highToLowSpecs, 0, specs, 0, highToLowSpecs.length);
+            System.arraycopy(lowToHighSpecs, 0, specs, highToLowSpecs.length, lowToHighSpecs.length);
+
+            runQueued(specs);
+
+            for (String spec : highToLowSpecs) {
+                constructAndPrintHighToLow(spec.split(" ")[1]);
+            }
+
+            for (String spec : lowToHighSpecs) {
+                constructAndPrintLowToHigh(spec.split(" ")[1]);
+            }
+
+            return;
         }
 
-        BasicIO.write(HOMOGENEOUS_HEATMAP.getFile("total"), ihm.getHeatMap());
-    }
+        Grammar lowGrammar = new Grammar(BasicIO.read(getHomogeneousGrammarFile(low)));
+        Grammar highGrammar = new Grammar(BasicIO.read(getHomogeneousGrammarFile(high)));
+        IntFunction<Grammar> grammars = i -> i == low ? lowGrammar : highGrammar;
 
-    private void runSimulationsHeterogeneous(int low, int high) {
-        runSimulationsHighToLow(low, high);
-        runSimulationsLowToHigh(low, high);
+        SimulationWriter[] highToLow = createWriters(highToLowSpecs, grammars);
+        SimulationWriter[] lowToHigh = createWriters(lowToHighSpecs, grammars);
+
+        currentWriters = new SimulationWriter[highToLow.length + lowToHigh.length];
+        System.arraycopy(highToLow, 0, currentWriters, 0, highToLow.length);
+        System.arraycopy(lowToHigh, 0, currentWriters, highToLow.length, lowToHigh.length);
+
+        for (SimulationWriter w : currentWriters) {
+            w.setWriteBehind(writes);
+        }
+
+        CompletableFuture<Void> highToLowDone = submitAll(HIGH_TO_LOW_STRING, highToLow,
+                SimulationCoordinator::constructAndPrintHighToLow);
+        CompletableFuture<Void> lowToHighDone = submitAll(LOW_TO_HIGH_STRING, lowToHigh,
+                SimulationCoordinator::constructAndPrintLowToHigh);
+
+        // Either sweep failing stops the other
+        awaitAll(HIGH_TO_LOW_STRING, highToLow, allOrFirstFailure(highToLowDone, lowToHighDone));
+        awaitAll(LOW_TO_HIGH_STRING, lowToHigh, lowToHighDone);
+        sync();
     }
 
-    private void runSimulationsHighToLow(int low, int high) {
+    private String[] createSimulationsHighToLow(int low, int high) {
         log.append("Heterogeneous runs (high to low):\n");
-        currentWriters = new SimulationWriter[getLength()];
-        coordinatorStatus = "Running high-irregularity to low-irregularity simulations";
+        return createSimulationsHeterogeneous(HIGH_TO_LOW_STRING, high, low);
+    }
+
+    private String[] createSimulationsLowToHigh(int low, int high) {
+        log.append("Heterogeneous runs (low to high):\n");
+        return createSimulationsHeterogeneous(LOW_TO_HIGH_STRING, low, high);
+    }
+
+    private String[] createSimulationsHeterogeneous(String section, int main, int add) {
+        String[] ret = new String[getLength()];
 
         int i = 0;
         int index = 0;
 
         while (i <= 100) {
-            double prob = (double) i * 0.01;
-
             long simSeed = random.nextLong();
             long mainSeed = random.nextLong();
             long addSeed = random.nextLong();
@@ -177,13 +325,7 @@ public final class SimulationCoordinator implements Consumable {
             log.append("Simulation " + i + " seed: " + simSeed + ", L1 agent seed: " + mainSeed + ", L2 agent seed: "
                     + addSeed + "\n");
 
-            Agent main = new Agent(BasicIO.read(HOMOGENEOUS_GRAMMAR.getFile(high + "")), mainSeed);
-            Agent add = new Agent(BasicIO.read(HOMOGENEOUS_GRAMMAR.getFile(low + "")), addSeed);
-
-            Run s = new HeterogeneousRun(simSeed, prob, main, add);
-            Transcription trans = new Transcription(HIGH_TO_LOW_IRREGULARITY.getFile(i + ""), "irregularity", true);
-
-            currentWriters[index++] = new SimulationWriter(i + "", HIGH_TO_LOW, s, trans);
+            ret[index++] = section + " " + i + " " + simSeed + " " + main + " " + mainSeed + " " + add + " " + addSeed;
 
             i += ConstantManager.getPercentChange();
 
@@ -192,57 +334,177 @@ public final class SimulationCoordinator implements Consumable {
             }
         }
 
-        executeAll(currentWriters);
+        return ret;
     }
 
-    private void runSimulationsLowToHigh(int low, int high) {
-        log.append("Heterogeneous runs (low to high):\n");
-        currentWriters = new SimulationWriter[getLength()];
-        coordinatorStatus = "Running low-irregularity to high-irregularity simulations";
+    /**
+     * Constructs the writer for a run from its spec, a line giving the section
+     * and name of the run and its seeds, followed for a heterogeneous run by the
+     * language and seed of each of its two agents
+     *
+     * @param spec     the spec, as queued by a sharded sweep
+     * @param grammars the grammar of each homogeneous language, by index
+     * @param extra    transcriptions to add to those of a homogeneous run
+     * @return the writer
+     */
+    public static SimulationWriter createWriter(String spec, IntFunction<Grammar> grammars, Transcription... extra) {
+        Scanner scan = new Scanner(spec);
+
+        String section = scan.next();
+        String name = scan.next();
+        long simSeed = scan.nextLong();
+
+        if (section.equals(HOMOGENEOUS_STRING)) {
+            scan.close();
 
-        int i = 0;
-        int index = 0;
+            Run s = new HomogeneousRun(simSeed);
+            s.setCheckpoint(CHECKPOINT.getFile(section + "-" + name));
 
-        while (i <= 100) {
-            double prob = (double) i * 0.01;
+            SimulationWriter w = new SimulationWriter(name, HOMOGENEOUS, s,
+                    transcriptionArray(Integer.parseInt(name), extra));
 
-            long simSeed = random.nextLong();
-            long mainSeed = random.nextLong();
-            long addSeed = random.nextLong();
+            if (ConstantManager.isBinarySeries()) {
+                w.setSeriesFile(HOMOGENEOUS_SERIES.getFile(name));
+            }
 
-            log.append("Simulation " + i + " seed: " + simSeed + ", L1 agent seed: " + mainSeed + ", L2 agent seed: "
-                    + addSeed + "\n");
+            return w;
+        }
 
-            Agent main = new Agent(BasicIO.read(HOMOGENEOUS_GRAMMAR.getFile(low + "")), mainSeed);
-            Agent add = new Agent(BasicIO.read(HOMOGENEOUS_GRAMMAR.getFile(high + "")), addSeed);
+        Agent main = new Agent(grammars.apply(scan.nextInt()), scan.nextLong());
+        Agent add = new Agent(grammars.apply(scan.nextInt()), scan.nextLong());
+        scan.close();
 
-            Run s = new HeterogeneousRun(simSeed, prob, main, add);
-            Transcription trans = new Transcription(LOW_TO_HIGH_IRREGULARITY.getFile(i + ""), "irregularity", true);
+        double prob = (double) Integer.parseInt(name) * 0.01;
+        Run s = new HeterogeneousRun(simSeed, prob, main, add);
+        s.setCheckpoint(CHECKPOINT.getFile(section + "-" + name));
 
-            currentWriters[index++] = new SimulationWriter(i + "", LOW_TO_HIGH, s, trans);
+        SimulationWriter w;
 
-            i += ConstantManager.getPercentChange();
+        if (section.equals(HIGH_TO_LOW_STRING)) {
+            Transcription trans = new Transcription(HIGH_TO_LOW_IRREGULARITY.getFile(name), "irregularity", true);
+            w = new SimulationWriter(name, HIGH_TO_LOW, s, trans);
+        } else {
+            Transcription trans = new Transcription(LOW_TO_HIGH_IRREGULARITY.getFile(name), "irregularity", true);
+            w = new SimulationWriter(name, LOW_TO_HIGH, s, trans);
+        }
 
-            if (i > 100 && i < 100 + ConstantManager.getPercentChange()) {
-                i = 100;
-            }
+        if (ConstantManager.isBinarySeries()) {
+            FileFormat series = section.equals(HIGH_TO_LOW_STRING) ? HIGH_TO_LOW_SERIES : LOW_TO_HIGH_SERIES;
+            w.setSeriesFile(series.getFile(name));
         }
 
-        executeAll(currentWriters);
+        return w;
     }
 
-    private static void printAnalysisHeterogeneous() {
-        int i = 0;
+    public static File getHomogeneousGrammarFile(int language) {
+        return HOMOGENEOUS_GRAMMAR.getFile(language + "");
+    }
 
-        while (i <= 100) {
-            constructAndPrintHighToLow(i + "");
-            constructAndPrintLowToHigh(i + "");
+    /**
+     * Returns the archive the sweep's sections are kept in, or null if they are
+     * kept in directories, for browsing them with a PathTraverser
+     */
+    public static Archive getArchive() {
+        return ARCHIVE;
+    }
 
-            i += ConstantManager.getPercentChange();
+    private static SimulationWriter[] createWriters(String[] specs, IntFunction<Grammar> grammars,
+            Transcription... extra) {
+        SimulationWriter[] ret = new SimulationWriter[specs.length];
 
-            if (i > 100 && i < 100 + ConstantManager.getPercentChange()) {
-                i = 100;
+        for (int i = 0; i < ret.length; i++) {
+            ret[i] = createWriter(specs[i], grammars, extra);
+        }
+
+        return ret;
+    }
+
+    // Queues the given runs, helps to drain the queue, then waits for the runs
+    // claimed by other processes and records how long each run took
+    private void runQueued(String[] specs) {
+        String[] ids = new String[specs.length];
+        String[] sections = new String[specs.length];
+        String[] names = new String[specs.length];
+        double[] estimates = new double[specs.length];
+
+        for (int i = 0; i < specs.length; i++) {
+            sections[i] = specs[i].split(" ")[0];
+            names[i] = specs[i].split(" ")[1];
+            ids[i] = sections[i] + "-" + names[i];
+            estimates[i] = sections[i].equals(HOMOGENEOUS_STRING) ? HomogeneousRun.estimateCost()
+                    : HeterogeneousRun.estimateCost(Integer.parseInt(names[i]) * 0.01);
+        }
+
+        Integer[] order = rank(sections, names, estimates);
+
+        for (int i = 0; i < order.length; i++) {
+            queue.submit(ids[order[i]], specs[order[i]], i);
+        }
+
+        CompletableFuture<?>[] workers = new CompletableFuture<?>[ConstantManager.getNumThreads()];
+
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = CompletableFuture.runAsync(new SweepWorker(queue, false), executor);
+        }
+
+        try {
+            CompletableFuture.allOf(workers).join();
+
+            // Jobs put back after the workers that claimed them died are run
+            // here, unless another process claims them first
+            for (String id : ids) {
+                while (!queue.isDone(id)) {
+                    if (queue.requeueExpired()) {
+                        new SweepWorker(queue, false).run();
+                    } else {
+                        TIME_UNIT.sleep(TIMEOUT);
+                    }
+                }
+            }
+        } catch (CompletionException e) {
+            throw new IllegalStateException("simulation failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for queued simulations", e);
+        }
+
+        for (String id : ids) {
+            Scanner scan = new Scanner(queue.getResult(id));
+
+            if (scan.hasNextLong()) {
+                history.record(id.substring(0, id.indexOf('-')), id.substring(id.indexOf('-') + 1), scan.nextLong(),
+                        scan.nextLong());
             }
+
+            scan.close();
+        }
+    }
+
+    // Takes a step of cleaning up after a sweep. If it fails, the failure is
+    // added to that of the sweep, if it failed, and otherwise to the first
+    // failure to clean up, which is returned.
+    private static RuntimeException cleanUp(Throwable failure, RuntimeException first, Runnable step) {
+        try {
+            step.run();
+        } catch (RuntimeException e) {
+            if (failure != null) {
+                failure.addSuppressed(e);
+            } else if (first != null) {
+                first.addSuppressed(e);
+            } else {
+                return e;
+            }
+        }
+
+        return first;
+    }
+
+    // Forces everything written so far to the disk, at the end of a sweep
+    private void sync() {
+        writes.sync();
+
+        if (ARCHIVE != null) {
+            ARCHIVE.sync();
         }
     }
 
@@ -275,29 +537,120 @@ public final class SimulationCoordinator implements Consumable {
         return ret;
     }
 
-    private static void executeAll(Runnable[] ary) {
-        ExecutorService es = Executors.newCachedThreadPool();
+    // Submits the given writers to the executor longest first. Each writer's
+    // analysis is run as soon as it finishes and its files are written, and the
+    // returned future completes once they all have.
+    private CompletableFuture<Void> submitAll(String section, SimulationWriter[] writers,
+            Consumer<String> analysis) {
+        String[] sections = new String[writers.length];
+        String[] names = new String[writers.length];
+        double[] estimates = new double[writers.length];
+
+        for (int i = 0; i < writers.length; i++) {
+            sections[i] = section;
+            names[i] = writers[i].getName();
+            estimates[i] = writers[i].getSimulation().getEstimatedCost();
+        }
+
+        Integer[] order = rank(sections, names, estimates);
+
+        CompletableFuture<?>[] runs = new CompletableFuture<?>[writers.length];
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[writers.length];
+
+        for (int i = 0; i < futures.length; i++) {
+            SimulationWriter w = writers[order[i]];
+            runs[i] = CompletableFuture.runAsync(w, executor);
+            futures[i] = runs[i].thenCompose(v -> w.getWritten()).thenRunAsync(() -> analysis.accept(w.getName()),
+                    executor);
+        }
+
+        CompletableFuture<Void> ret = allOrFirstFailure(futures);
+
+        // Runs that haven't started yet are never started once one has failed
+        ret.whenComplete((v, t) -> {
+            if (t != null) {
+                for (CompletableFuture<?> f : runs) {
+                    f.cancel(false);
+                }
+            }
+        });
+
+        return ret;
+    }
+
+    // Returns the indices of the given runs, by section and name, longest first. They are judged by
+    // how long each took last time if every one of them has been timed before.
+    // Otherwise each is judged by how many generations it took last time, or by
+    // its estimated cost, which is also in generations, if it has never run.
+    private Integer[] rank(String[] sections, String[] names, double[] estimates) {
+        double[] costs = new double[names.length];
+        boolean recorded = true;
+
+        for (int i = 0; i < names.length; i++) {
+            recorded &= history.contains(sections[i], names[i]);
+        }
+
+        for (int i = 0; i < names.length; i++) {
+            if (recorded) {
+                costs[i] = history.getElapsedTime(sections[i], names[i]);
+            } else if (history.contains(sections[i], names[i])) {
+                costs[i] = history.getGenerationCount(sections[i], names[i]);
+            } else {
+                costs[i] = estimates[i];
+            }
+        }
+
+        Integer[] order = new Integer[names.length];
 
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+
+        Arrays.sort(order, Comparator.comparingDouble(i -> -costs[i]));
+        return order;
+    }
+
+    // Waits for the given future, then records how long each of the given
+    // writers took
+    private void awaitAll(String section, SimulationWriter[] writers, CompletableFuture<Void> done) {
         try {
-            for (Runnable r : ary) {
-                es.execute(r);
+            done.join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("simulation failed", e.getCause());
+        }
+
+        for (SimulationWriter w : writers) {
+            if (w.getSimulation().hasBeenConsumed()) {
+                history.record(section, w.getName(), w.getSimulation());
             }
+        }
+    }
 
-            es.shutdown();
-            while (!es.awaitTermination(TIMEOUT, TIME_UNIT))
-                ;
-        } catch (InterruptedException e) {
-            es.shutdownNow();
+    // Returns a future that completes once all the given futures have, or as
+    // soon as any one of them fails
+    private static CompletableFuture<Void> allOrFirstFailure(CompletableFuture<?>... futures) {
+        CompletableFuture<Void> ret = CompletableFuture.allOf(futures);
+
+        for (CompletableFuture<?> f : futures) {
+            f.whenComplete((v, t) -> {
+                if (t != null) {
+                    ret.completeExceptionally(t);
+                }
+            });
         }
+
+        return ret;
     }
 
-    private static Transcription[] transcriptionArray(int index, Transcription common) {
-        return new Transcription[] {
+    private static Transcription[] transcriptionArray(int index, Transcription... extra) {
+        Transcription[] ret = Arrays.copyOf(new Transcription[] {
                 new Transcription(HOMOGENEOUS_IRREGULARITY.getFile(index + ""), "irregularity", true),
                 new Transcription(HOMOGENEOUS_GRAMMAR.getFile(index + ""), "grammar", true),
-                new Transcription(HOMOGENEOUS_HEATMAP.getFile(index + ""), "heatmap", true),
-                common
-        };
+                new Transcription(HOMOGENEOUS_HEATMAP.getFile(index + ""), "heatmap", true)
+        }, 3 + extra.length);
+
+        System.arraycopy(extra, 0, ret, 3, extra.length);
+        return ret;
     }
 
     private static int getLength() {
@@ -310,20 +663,66 @@ public final class SimulationCoordinator implements Consumable {
         return ret;
     }
 
+    // The total of the homogeneous runs is the series of each run in turn
     private static ListAnalyzer constructAndPrintHomogeneous(String in) {
-        ListAnalyzer la = new ListAnalyzer(BasicIO.read(HOMOGENEOUS_IRREGULARITY.getFile(in)));
+        ListAnalyzer la;
+
+        if (!ConstantManager.isBinarySeries()) {
+            la = new ListAnalyzer(HOMOGENEOUS_IRREGULARITY.getFile(in));
+        } else if (in.equals("total")) {
+            String[] names = new String[ConstantManager.getNumLanguages()];
+
+            for (int i = 0; i < names.length; i++) {
+                names[i] = i + "";
+            }
+
+            la = analyzeSeries(HOMOGENEOUS_SERIES, names);
+        } else {
+            la = analyzeSeries(HOMOGENEOUS_SERIES, in);
+        }
+
         BasicIO.write(HOMOGENEOUS_ANALYSIS.getFile(in), la.getAnalysisString());
 
         return la;
     }
 
     private static void constructAndPrintHighToLow(String in) {
-        ListAnalyzer la = new ListAnalyzer(BasicIO.read(HIGH_TO_LOW_IRREGULARITY.getFile(in)));
+        ListAnalyzer la = ConstantManager.isBinarySeries() ? analyzeSeries(HIGH_TO_LOW_SERIES, in)
+                : new ListAnalyzer(HIGH_TO_LOW_IRREGULARITY.getFile(in));
         BasicIO.write(HIGH_TO_LOW_ANALYSIS.getFile(in), la.getAnalysisString());
     }
 
     private static void constructAndPrintLowToHigh(String in) {
-        ListAnalyzer la = new ListAnalyzer(BasicIO.read(LOW_TO_HIGH_IRREGULARITY.getFile(in)));
+        ListAnalyzer la = ConstantManager.isBinarySeries() ? analyzeSeries(LOW_TO_HIGH_SERIES, in)
+                : new ListAnalyzer(LOW_TO_HIGH_IRREGULARITY.getFile(in));
         BasicIO.write(LOW_TO_HIGH_ANALYSIS.getFile(in), la.getAnalysisString());
     }
+
+    // Analyzes the irregularity series of the named runs together, refusing any
+    // written with different parameters
+    private static ListAnalyzer analyzeSeries(FileFormat series, String... names) {
+        double[][] columns = new double[names.length][];
+        int length = 0;
+
+        for (int i = 0; i < names.length; i++) {
+            SeriesFile sf = SeriesFile.read(series.getFile(names[i]));
+
+            if (sf.getConfigHash() != ConstantManager.getConfigHash()) {
+                throw new IllegalStateException("series " + series.getFile(names[i]) + " has different parameters");
+            }
+
+            columns[i] = sf.getColumn(IRREGULARITY_STRING);
+            length += columns[i].length;
+        }
+
+        double[] values = new double[length];
+        int pos = 0;
+
+        for (double[] column : columns) {
+            System.arraycopy(column, 0, values, pos, column.length);
+            pos += column.length;
+        }
+
+        return new ListAnalyzer(values);
+    }
 }
\ No newline at end of file
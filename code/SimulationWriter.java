@@ -1,8 +1,17 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
 public final class SimulationWriter implements Consumable {
     private final String name;
     private final FileFormat fileFormat;
     private final Run simulation;
     private final Transcription[] transcriptions;
+    private File seriesFile;
+    private WriteBehind writes;
+    private final List<CompletableFuture<Void>> written;
 
     private boolean used;
 
@@ -11,6 +20,8 @@ public final class SimulationWriter implements Consumable {
         fileFormat = ff;
         simulation = sim;
         transcriptions = trans;
+        writes = WriteBehind.DIRECT;
+        written = new ArrayList<CompletableFuture<Void>>();
 
         used = false;
     }
@@ -20,6 +31,8 @@ public final class SimulationWriter implements Consumable {
         fileFormat = ff;
         simulation = sim;
         transcriptions = new Transcription[0];
+        writes = WriteBehind.DIRECT;
+        written = new ArrayList<CompletableFuture<Void>>();
 
         used = false;
     }
@@ -32,11 +45,63 @@ public final class SimulationWriter implements Consumable {
     @Override
     public void consume() {
         used = true;
-        write();
+
+        // A run skipped on resuming only has its output on file
+        if (write()) {
+            for (Transcription t : transcriptions) {
+                t.append(simulation.getOutput().getSection(t.getFlag()));
+            }
+        } else {
+            for (Transcription t : transcriptions) {
+                t.appendFromFile(fileFormat.getFile(name));
+            }
+        }
+    }
+
+    /**
+     * Sets the file the numeric columns of the run's output are written to, as a
+     * series file, before the run's output file is written
+     */
+    public void setSeriesFile(File f) {
+        seriesFile = f;
+    }
+
+    /**
+     * Sets the stage this writer and its transcriptions hand their files off
+     * to, rather than writing them on the thread running the simulation
+     */
+    public void setWriteBehind(WriteBehind w) {
+        writes = w;
 
         for (Transcription t : transcriptions) {
-            t.appendFromFile(fileFormat.getFile(name));
+            t.setWriteBehind(w);
+        }
+    }
+
+    /**
+     * Returns a future that completes once every file this writer and its
+     * transcriptions have handed off has been written
+     */
+    public CompletableFuture<Void> getWritten() {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[written.size() + transcriptions.length];
+
+        for (int i = 0; i < written.size(); i++) {
+            futures[i] = written.get(i);
+        }
+
+        for (int i = 0; i < transcriptions.length; i++) {
+            futures[written.size() + i] = transcriptions[i].getWritten();
         }
+
+        return CompletableFuture.allOf(futures);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Run getSimulation() {
+        return simulation;
     }
 
     @Override
@@ -44,7 +109,35 @@ public final class SimulationWriter implements Consumable {
         return name + ": " + simulation.getCurrentStatus();
     }
 
-    private void write() {
+    /**
+     * Returns whether this writer's file already holds the complete output of a
+     * run with the same name and seed, as left by an earlier, interrupted sweep
+     */
+    public boolean isWritten() {
+        File f = fileFormat.getFile(name);
+
+        if (!f.exists()) {
+            return false;
+        }
+
+        String str;
+
+        // A compressed file cut short while being written can't be read at all
+        try {
+            str = BasicIO.read(f);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+
+        return str.startsWith(start(new StringBuilder()).toString())
+                && str.endsWith(end(new StringBuilder()).toString());
+    }
+
+    private boolean write() {
+        if (ConstantManager.isResuming() && isWritten()) {
+            return false;
+        }
+
         StringBuilder sb = new StringBuilder();
 
         start(sb);
@@ -52,7 +145,18 @@ public final class SimulationWriter implements Consumable {
         sb.append(simulation.getSimulationString() + "\n");
         end(sb);
 
-        BasicIO.write(fileFormat.getFile(name), sb.toString());
+        if (seriesFile != null) {
+            SeriesFile sf = new SeriesFile(name, simulation.getSeed(), ConstantManager.getConfigHash());
+
+            for (Map.Entry<String, int[]> entry : simulation.getOutput().getColumns().entrySet()) {
+                sf.addColumn(entry.getKey(), entry.getValue());
+            }
+
+            written.add(writes.writeAtomically(seriesFile, sf.toByteArray()));
+        }
+
+        written.add(writes.write(fileFormat.getFile(name), sb.toString()));
+        return true;
     }
 
     private StringBuilder start(StringBuilder sb) {
@@ -0,0 +1,110 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Claims runs from a work queue and executes them until the queue is empty or,
+ * if told to wait for more, until the queue is closed. Several workers, in this
+ * process or others sharing the working directory, can drain the same queue.
+ * The lease on the job a worker is running is renewed for as long as it runs.
+ */
+public final class SweepWorker implements Consumable {
+    private static final TimeUnit TIME_UNIT = TimeUnit.MILLISECONDS;
+    private static final long TIMEOUT = 500;
+
+    private final WorkQueue queue;
+    private final boolean waitForMore;
+    private final Map<Integer, Grammar> grammars;
+
+    private SimulationWriter current;
+    private volatile String currentJob;
+    private boolean used;
+
+    public SweepWorker(WorkQueue q, boolean wait) {
+        queue = q;
+        waitForMore = wait;
+        grammars = new HashMap<Integer, Grammar>();
+        used = false;
+    }
+
+    public SweepWorker() {
+        this(new WorkQueue(SimulationCoordinator.QUEUE_DIRECTORY), true);
+    }
+
+    @Override
+    public void consume() {
+        used = true;
+
+        ScheduledExecutorService renewer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "lease-renewer");
+            t.setDaemon(true);
+            return t;
+        });
+
+        renewer.scheduleAtFixedRate(() -> {
+            String job = currentJob;
+
+            if (job != null) {
+                queue.renew(job);
+            }
+        }, WorkQueue.LEASE / 4, WorkQueue.LEASE / 4, TIME_UNIT);
+
+        try {
+            work();
+        } finally {
+            renewer.shutdownNow();
+        }
+    }
+
+    @Override
+    public boolean hasBeenConsumed() {
+        return used;
+    }
+
+    @Override
+    public String getCurrentStatus() {
+        SimulationWriter w = current;
+        return w == null ? "waiting" : w.getCurrentStatus();
+    }
+
+    private void work() {
+        while (true) {
+            String[] job = queue.claim();
+
+            if (job == null) {
+                if (!waitForMore || queue.isClosed()) {
+                    break;
+                }
+
+                try {
+                    TIME_UNIT.sleep(TIMEOUT);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+
+                continue;
+            }
+
+            currentJob = job[0];
+            current = SimulationCoordinator.createWriter(job[1], this::getGrammar);
+            current.run();
+
+            // A run skipped on resuming has nothing worth recording
+            Run r = current.getSimulation();
+            queue.complete(job[0], r.hasBeenConsumed() ? r.getElapsedTime() + " " + r.getGenerationCount() + "\n" : "");
+            currentJob = null;
+        }
+
+        current = null;
+    }
+
+    // The grammars of the homogeneous runs don't change once the heterogeneous
+    // runs that use them are queued, so each is read only once
+    private Grammar getGrammar(int language) {
+        return grammars.computeIfAbsent(language,
+                i -> new Grammar(BasicIO.read(SimulationCoordinator.getHomogeneousGrammarFile(i))));
+    }
+}
\ No newline at end of file
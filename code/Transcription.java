@@ -1,50 +1,112 @@
 import java.io.File;
-import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
 
 public final class Transcription {
     private final File destination;
     private final String flag;
     private final boolean autoPrint;
+    private final TranscriptionAggregator aggregator;
+    private final int index;
     private boolean printed;
     private StringBuilder contents;
+    private WriteBehind writes;
+    private CompletableFuture<Void> written;
 
     public Transcription(File d, String f, boolean ap) {
         destination = d;
         flag = f;
         autoPrint = ap;
+        aggregator = null;
+        index = 0;
         printed = false;
         contents = new StringBuilder();
+        writes = WriteBehind.DIRECT;
+        written = CompletableFuture.completedFuture(null);
     }
 
     public Transcription(File d, String f) {
         destination = d;
         flag = f;
         autoPrint = false;
+        aggregator = null;
+        index = 0;
         printed = false;
         contents = new StringBuilder();
+        writes = WriteBehind.DIRECT;
+        written = CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Constructs a transcription of one part of what the given aggregator
+     * combines, which prints itself to the aggregator as soon as anything is
+     * appended
+     */
+    public Transcription(TranscriptionAggregator agg, int i) {
+        destination = null;
+        flag = agg.getFlag();
+        autoPrint = true;
+        aggregator = agg;
+        index = i;
+        printed = false;
+        contents = new StringBuilder();
+        writes = WriteBehind.DIRECT;
+        written = CompletableFuture.completedFuture(null);
     }
 
     public String getFlag() {
         return flag;
     }
 
+    public void setWriteBehind(WriteBehind w) {
+        writes = w;
+    }
+
+    /**
+     * Returns a future that completes once this transcription's file has been
+     * written, or at once if it prints to an aggregator or hasn't printed
+     */
+    public CompletableFuture<Void> getWritten() {
+        return written;
+    }
+
     public void appendFromFile(File in) {
         verifyNotPrinted();
 
-        String str = BasicIO.read(in);
-        Scanner scan = new Scanner(str);
+        // Number of flag lines seen so far; only the lines between the first two
+        // are transcribed
+        int[] flags = new int[1];
+
+        BasicIO.forEachLine(in, line -> {
+            if (flags[0] < 2 && line.equals(flag)) {
+                flags[0]++;
+            } else if (flags[0] == 1) {
+                contents.append(line + "\n");
+            }
+        });
 
-        while (!scan.nextLine().equals(flag)) {
+        if (flags[0] < 2) {
+            throw new IllegalArgumentException("no " + flag + " section in file: " + in);
         }
 
-        String cur = scan.nextLine();
+        if (autoPrint) {
+            print();
+        }
+    }
 
-        while (!cur.equals(flag)) {
-            contents.append(cur + "\n");
-            cur = scan.nextLine();
+    /**
+     * Appends the contents of a section flagged with this transcription's flag,
+     * as kept by a run's output
+     *
+     * @param section the contents of the section
+     */
+    public void append(String section) {
+        verifyNotPrinted();
+
+        if (section == null) {
+            throw new IllegalArgumentException("no " + flag + " section");
         }
 
-        scan.close();
+        contents.append(section);
 
         if (autoPrint) {
             print();
@@ -54,7 +116,12 @@ public final class Transcription {
     public void print() {
         verifyNotPrinted();
 
-        BasicIO.write(destination, contents.toString());
+        if (aggregator == null) {
+            written = writes.write(destination, contents.toString());
+        } else {
+            aggregator.complete(index, contents.toString());
+        }
+
         printed = true;
     }
 
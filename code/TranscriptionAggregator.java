@@ -0,0 +1,78 @@
+import java.io.File;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Combines the transcriptions of several runs that finish in any order, on any
+ * thread, into one file. Each run transcribes into its own part, so runs never
+ * share a buffer, and the parts are written out in index order as soon as all
+ * the parts before them are complete.
+ */
+public final class TranscriptionAggregator {
+    private final File destination;
+    private final String flag;
+    private final AtomicReferenceArray<String> parts;
+    private final WriteBehind writes;
+
+    // Number of parts written to the destination so far
+    private int written;
+
+    public TranscriptionAggregator(File d, String f, int numParts) {
+        this(d, f, numParts, WriteBehind.DIRECT);
+    }
+
+    /**
+     * Constructs an aggregator that hands the parts it writes out to the given
+     * stage, which must be synced before the destination is read
+     */
+    public TranscriptionAggregator(File d, String f, int numParts, WriteBehind w) {
+        destination = d;
+        flag = f;
+        parts = new AtomicReferenceArray<String>(numParts);
+        writes = w;
+        written = 0;
+
+        BasicIO.write(destination, "");
+    }
+
+    public String getFlag() {
+        return flag;
+    }
+
+    /**
+     * Returns a transcription of the part with the given index, which hands its
+     * contents to this aggregator when printed
+     */
+    public Transcription getPart(int index) {
+        return new Transcription(this, index);
+    }
+
+    public void complete(int index, String contents) {
+        if (!parts.compareAndSet(index, null, contents)) {
+            throw new IllegalStateException("part " + index + " already complete");
+        }
+
+        flush();
+    }
+
+    /**
+     * Checks that every part has been written
+     */
+    public synchronized void close() {
+        if (written < parts.length()) {
+            throw new IllegalStateException("part " + written + " of " + destination + " never completed");
+        }
+    }
+
+    private synchronized void flush() {
+        StringBuilder sb = new StringBuilder();
+
+        while (written < parts.length() && parts.get(written) != null) {
+            sb.append(parts.getAndSet(written, ""));
+            written++;
+        }
+
+        if (sb.length() > 0) {
+            writes.append(destination, sb.toString());
+        }
+    }
+}
\ No newline at end of file
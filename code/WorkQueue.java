@@ -0,0 +1,188 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+/**
+ * A queue of jobs kept in a directory, so that several processes sharing a
+ * filesystem can work through it without any other coordination. Each job is
+ * a file named by its rank and id that moves from the pending folder to the
+ * claimed folder when a worker claims it, and a result file named by its id
+ * appears in the done folder when the job is finished. Jobs are claimed in
+ * order of rank, and every move is atomic, so each job is claimed by exactly
+ * one worker.
+ *
+ * A claim is a lease that the worker holding it renews while it works. A job
+ * whose lease runs out, because its worker died, can be put back in the
+ * pending folder for another worker to claim.
+ */
+public final class WorkQueue {
+    private static final String PENDING_STRING = "pending";
+    private static final String CLAIMED_STRING = "claimed";
+    private static final String DONE_STRING = "done";
+    private static final String CLOSED_STRING = "closed";
+    private static final String RANK_FORMAT = "%06d.";
+
+    /**
+     * How long a claim lasts without being renewed, in milliseconds
+     */
+    public static final long LEASE = 60000;
+
+    private final Path directory;
+    private final Path pending;
+    private final Path claimed;
+    private final Path done;
+
+    public WorkQueue(File dir) {
+        directory = dir.toPath();
+        pending = directory.resolve(PENDING_STRING);
+        claimed = directory.resolve(CLAIMED_STRING);
+        done = directory.resolve(DONE_STRING);
+
+        pending.toFile().mkdirs();
+        claimed.toFile().mkdirs();
+        done.toFile().mkdirs();
+    }
+
+    /**
+     * Removes every job and result and reopens the queue
+     */
+    public void clear() {
+        for (Path p : new Path[] { pending, claimed, done }) {
+            for (File f : p.toFile().listFiles()) {
+                f.delete();
+            }
+        }
+
+        directory.resolve(CLOSED_STRING).toFile().delete();
+    }
+
+    /**
+     * Submits a job, to be claimed after any job of a lower rank
+     */
+    public void submit(String id, String spec, int rank) {
+        publish(pending.resolve(String.format(RANK_FORMAT, rank) + id), spec);
+    }
+
+    /**
+     * Claims the pending job of the lowest rank
+     *
+     * @return the name of the claimed job in this queue and its spec, or null if
+     *         no job is pending
+     */
+    public String[] claim() {
+        String[] names = pending.toFile().list();
+        Arrays.sort(names);
+
+        for (String name : names) {
+            // Jobs still being published are hidden until they are moved into
+            // place
+            if (name.startsWith(".")) {
+                continue;
+            }
+
+            Path source = pending.resolve(name);
+            Path target = claimed.resolve(name);
+
+            // The move keeps the file's time, so the lease starts before it,
+            // or a job that waited longer than a lease would look expired
+            try {
+                Files.setLastModifiedTime(source, FileTime.fromMillis(System.currentTimeMillis()));
+                Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (NoSuchFileException e) {
+                continue;
+            } catch (IOException e) {
+                throw new IllegalStateException("could not claim " + name, e);
+            }
+
+            // The job was put back as expired before it could be read, and is
+            // left for whoever claims it next
+            if (!target.toFile().exists()) {
+                continue;
+            }
+
+            return new String[] { name, BasicIO.read(target.toFile()) };
+        }
+
+        return null;
+    }
+
+    /**
+     * Renews the lease on the claimed job with the given name
+     */
+    public void renew(String name) {
+        try {
+            Files.setLastModifiedTime(claimed.resolve(name), FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (NoSuchFileException e) {
+            // The lease ran out and the job was put back
+        } catch (IOException e) {
+            throw new IllegalStateException("could not renew " + name, e);
+        }
+    }
+
+    /**
+     * Puts every claimed job whose lease has run out back in the pending folder
+     *
+     * @return whether any job was put back
+     */
+    public boolean requeueExpired() {
+        long cutoff = System.currentTimeMillis() - LEASE;
+        boolean ret = false;
+
+        for (File f : claimed.toFile().listFiles()) {
+            if (f.lastModified() < cutoff && !isDone(getId(f.getName()))) {
+                try {
+                    Files.move(f.toPath(), pending.resolve(f.getName()), StandardCopyOption.ATOMIC_MOVE);
+                } catch (NoSuchFileException e) {
+                    continue;
+                } catch (IOException e) {
+                    throw new IllegalStateException("could not requeue " + f, e);
+                }
+
+                ret = true;
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * Completes the claimed job with the given name
+     */
+    public void complete(String name, String result) {
+        publish(done.resolve(getId(name)), result);
+        claimed.resolve(name).toFile().delete();
+    }
+
+    public boolean isDone(String id) {
+        return done.resolve(id).toFile().exists();
+    }
+
+    public String getResult(String id) {
+        return BasicIO.read(done.resolve(id).toFile());
+    }
+
+    /**
+     * Marks that no more jobs will be submitted, so that workers waiting for
+     * jobs can stop
+     */
+    public void close() {
+        publish(directory.resolve(CLOSED_STRING), "");
+    }
+
+    public boolean isClosed() {
+        return directory.resolve(CLOSED_STRING).toFile().exists();
+    }
+
+    private static String getId(String name) {
+        return name.substring(name.indexOf('.') + 1);
+    }
+
+    private void publish(Path target, String contents) {
+        BasicIO.writeAtomically(target.toFile(), contents);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,227 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * A stage that writes files on a thread of its own, so that the threads running
+ * simulations hand off their output and go back to computing instead of
+ * waiting on the disk. Writes are done in the order they were handed off, in
+ * batches of whatever has queued up, and the files written are only forced to
+ * the disk when synced. The queue holds a bounded number of writes, and a
+ * thread handing off a write while it is full waits for room, so output can't
+ * pile up in memory faster than it is written.
+ */
+public final class WriteBehind {
+    /**
+     * Writes on the calling thread as soon as asked, as if there were no stage
+     */
+    public static final WriteBehind DIRECT = new WriteBehind(0);
+
+    private final BlockingQueue<Write> pending;
+    private final Thread thread;
+
+    // Why this stage's thread stopped, once it has
+    private volatile Throwable stopped;
+
+    // Files and archives written since the last sync, touched only by this
+    // stage's thread. An archive is synced once however many of its entries
+    // were written.
+    private final Set<File> unsynced;
+    private final Set<Archive> unsyncedArchives;
+
+    public WriteBehind(int capacity) {
+        unsynced = new LinkedHashSet<File>();
+        unsyncedArchives = new LinkedHashSet<Archive>();
+
+        if (capacity > 0) {
+            pending = new ArrayBlockingQueue<Write>(capacity);
+            thread = new Thread(this::drain, "write-behind");
+            thread.setDaemon(true);
+            thread.start();
+        } else {
+            pending = null;
+            thread = null;
+        }
+    }
+
+    public CompletableFuture<Void> write(File file, String string) {
+        return submit(new Write(file, () -> BasicIO.write(file, string)));
+    }
+
+    public CompletableFuture<Void> append(File file, String string) {
+        return submit(new Write(file, () -> BasicIO.append(file, string)));
+    }
+
+    public CompletableFuture<Void> writeAtomically(File file, byte[] bytes) {
+        return submit(new Write(file, () -> BasicIO.writeAtomically(file, bytes)));
+    }
+
+    /**
+     * Waits until every write handed off so far is done and forced to the disk
+     *
+     * @throws IllegalStateException if any of those writes failed
+     */
+    public void sync() {
+        if (thread == null) {
+            return;
+        }
+
+        try {
+            submit(new Write(null, () -> { })).join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("write failed", e.getCause());
+        }
+    }
+
+    /**
+     * Syncs, then stops this stage's thread
+     */
+    public void close() {
+        if (thread == null) {
+            return;
+        }
+
+        try {
+            sync();
+        } finally {
+            submit(new Write(null, null));
+        }
+    }
+
+    private CompletableFuture<Void> submit(Write w) {
+        if (thread == null) {
+            w.perform();
+            return w.done;
+        }
+
+        try {
+            pending.put(w);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while handing off a write", e);
+        }
+
+        // A write handed off as the thread stops would otherwise wait forever
+        if (stopped != null) {
+            failPending(stopped);
+        }
+
+        return w.done;
+    }
+
+    // A write that fails is passed on to whoever waits for it, and to the next
+    // sync, rather than stopping the writes behind it. Anything else that stops
+    // this thread, even an error, fails every write still waiting to be done.
+    private void drain() {
+        List<Write> batch = new ArrayList<Write>();
+        Throwable cause = new IllegalStateException("write-behind stage closed");
+
+        try {
+            drain(batch);
+        } catch (Throwable t) {
+            cause = t;
+        } finally {
+            stopped = cause;
+
+            for (Write w : batch) {
+                w.done.completeExceptionally(cause);
+            }
+
+            failPending(cause);
+        }
+    }
+
+    private void drain(List<Write> batch) throws InterruptedException {
+        RuntimeException failure = null;
+
+        while (true) {
+            batch.add(pending.take());
+
+            pending.drainTo(batch);
+
+            for (Write w : batch) {
+                if (w.action == null) {
+                    return;
+                }
+
+                if (w.file == null) {
+                    sync(w, failure);
+                    failure = null;
+                    continue;
+                }
+
+                RuntimeException e = w.perform();
+
+                if (e == null && w.file instanceof Archive.Entry) {
+                    unsyncedArchives.add(((Archive.Entry) w.file).getArchive());
+                } else if (e == null) {
+                    unsynced.add(w.file);
+                } else if (failure == null) {
+                    failure = e;
+                }
+            }
+
+            batch.clear();
+        }
+    }
+
+    private void failPending(Throwable cause) {
+        for (Write w = pending.poll(); w != null; w = pending.poll()) {
+            w.done.completeExceptionally(cause);
+        }
+    }
+
+    // Forces the files written since the last sync to the disk and completes the
+    // given sync, failing it with the first write to fail since the last sync
+    private void sync(Write w, RuntimeException failure) {
+        try {
+            for (File f : unsynced) {
+                BasicIO.sync(f);
+            }
+
+            for (Archive a : unsyncedArchives) {
+                a.sync();
+            }
+
+            unsynced.clear();
+            unsyncedArchives.clear();
+        } catch (RuntimeException e) {
+            failure = failure == null ? e : failure;
+        }
+
+        if (failure == null) {
+            w.done.complete(null);
+        } else {
+            w.done.completeExceptionally(failure);
+        }
+    }
+
+    private static final class Write {
+        private final File file;
+        private final Runnable action;
+        private final CompletableFuture<Void> done;
+
+        private Write(File f, Runnable a) {
+            file = f;
+            action = a;
+            done = new CompletableFuture<Void>();
+        }
+
+        private RuntimeException perform() {
+            try {
+                action.run();
+                done.complete(null);
+                return null;
+            } catch (RuntimeException e) {
+                done.completeExceptionally(e);
+                return e;
+            }
+        }
+    }
+}
\ No newline at end of file